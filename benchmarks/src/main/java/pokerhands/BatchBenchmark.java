@@ -0,0 +1,84 @@
+package pokerhands;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pokerhands.eval.BatchEvaluator;
+
+/**
+ * Measures scoring a large batch of seven card hands in one call.
+ * Scores are reported per hand.
+ * @author jfritz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark 
+{
+    private static final int BATCH_SIZE = 1 << 16;
+    
+    @Param({"1", "42"})
+    public long seed;
+    
+    private long[] masks;
+    
+    private int[] cards;
+    
+    private int[] scores;
+    
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(seed);
+        masks = new long[BATCH_SIZE];
+        cards = new int[BATCH_SIZE * BatchEvaluator.CARDS_PER_HAND];
+        scores = new int[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            Card[] hand = BenchmarkHands.deal(random, BatchEvaluator.CARDS_PER_HAND);
+            for (int c = 0; c < hand.length; c++)
+            {
+                masks[i] |= hand[c].getMask();
+                cards[i * BatchEvaluator.CARDS_PER_HAND + c] = hand[c].getIndex();
+            }
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] evaluateMasks()
+    {
+        BatchEvaluator.evaluate(masks, scores);
+        return scores;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] evaluateCards()
+    {
+        BatchEvaluator.evaluate(cards, scores);
+        return scores;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] parallelEvaluateMasks()
+    {
+        BatchEvaluator.parallelEvaluate(masks, scores);
+        return scores;
+    }
+}
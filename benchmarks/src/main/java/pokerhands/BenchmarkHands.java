@@ -0,0 +1,97 @@
+package pokerhands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import pokerhands.hands.Hand;
+
+/**
+ * Deals reproducible hands for the benchmarks.
+ * Every benchmark takes a seed parameter, so the same seed always measures
+ * the same cards from run to run.
+ * @author jfritz
+ */
+final class BenchmarkHands
+{
+    /**
+     * The number of deals that each benchmark cycles through. A power of two
+     * so that the next deal can be picked with a mask.
+     */
+    static final int NUM_DEALS = 1024;
+    
+    private BenchmarkHands()
+    {
+    }
+    
+    /**
+     * Deals the specified number of distinct cards from a freshly shuffled
+     * deck.
+     */
+    static Card[] deal(Random random, int numCards)
+    {
+        int[] deck = new int[52];
+        for (int i = 0; i < 52; i++)
+        {
+            deck[i] = i;
+        }
+        
+        Card[] cards = new Card[numCards];
+        for (int i = 0; i < numCards; i++)
+        {
+            int j = i + random.nextInt(52 - i);
+            int swap = deck[i];
+            deck[i] = deck[j];
+            deck[j] = swap;
+            cards[i] = Card.fromIndex(deck[i]);
+        }
+        return cards;
+    }
+    
+    /**
+     * Deals NUM_DEALS random hands of the specified size.
+     */
+    static Hand[] hands(long seed, int numCards)
+    {
+        Random random = new Random(seed);
+        Hand[] hands = new Hand[NUM_DEALS];
+        for (int i = 0; i < NUM_DEALS; i++)
+        {
+            hands[i] = new Hand();
+            for (Card c : deal(random, numCards))
+            {
+                hands[i].add(c);
+            }
+        }
+        return hands;
+    }
+    
+    /**
+     * Deals NUM_DEALS showdowns. Each showdown is a list of seven card hands,
+     * one per player, made from two hole cards and a shared five card board.
+     */
+    static List<List<Hand>> showdowns(long seed, int numPlayers)
+    {
+        Random random = new Random(seed);
+        List<List<Hand>> showdowns = new ArrayList<>(NUM_DEALS);
+        for (int i = 0; i < NUM_DEALS; i++)
+        {
+            Card[] cards = deal(random, 5 + 2 * numPlayers);
+            
+            Hand community = new Hand();
+            for (int c = 0; c < 5; c++)
+            {
+                community.add(cards[c]);
+            }
+            
+            List<Hand> players = new ArrayList<>(numPlayers);
+            for (int p = 0; p < numPlayers; p++)
+            {
+                Hand player = new Hand(cards[5 + 2 * p]);
+                player.add(cards[6 + 2 * p]);
+                players.add(new Hand(player, community));
+            }
+            showdowns.add(players);
+        }
+        return showdowns;
+    }
+}
@@ -0,0 +1,65 @@
+package pokerhands;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures shuffling a deck and dealing from it.
+ * @author jfritz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeckBenchmark 
+{
+    private Deck deck;
+    
+    @Setup
+    public void setUp()
+    {
+        deck = new Deck(new SplittableRandom(42));
+    }
+    
+    @Benchmark
+    public Deck shuffle()
+    {
+        deck.shuffle();
+        return deck;
+    }
+    
+    /**
+     * Shuffles, then deals a heads-up hand the way the Pokerhands 
+     * constructor does: four hole cards and a board with three burns.
+     */
+    @Benchmark
+    public List<Card> shuffleAndDrawCards()
+    {
+        deck.shuffle();
+        return deck.drawCards(12);
+    }
+    
+    /**
+     * Deals the same cards as shuffleAndDrawCards, shuffling only the cards
+     * that are dealt.
+     */
+    @Benchmark
+    public List<Card> partialShuffleAndDrawCards()
+    {
+        deck.shuffle(12);
+        return deck.drawCards(12);
+    }
+}
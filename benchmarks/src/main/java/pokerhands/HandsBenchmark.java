@@ -0,0 +1,85 @@
+package pokerhands;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pokerhands.hands.*;
+
+/**
+ * Measures each of the pokerhands.hands classes on its own, building it from
+ * random seven card hands.
+ * @author jfritz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandsBenchmark 
+{
+    @Param({"RoyalFlush", "StraightFlush", "FourOfAKind", "FullHouse", "Flush", 
+            "Straight", "ThreeOfAKind", "TwoPair", "OnePair", "HighCard"})
+    public String type;
+    
+    @Param({"42"})
+    public long seed;
+    
+    private Hand[] hands;
+    
+    private int next = 0;
+    
+    @Setup
+    public void setUp()
+    {
+        hands = BenchmarkHands.hands(seed, 7);
+    }
+    
+    @Benchmark
+    public Hand construct()
+    {
+        Hand h = hands[next++ & (BenchmarkHands.NUM_DEALS - 1)];
+        switch (type)
+        {
+            case "RoyalFlush":
+                return new RoyalFlush(h);
+            case "StraightFlush":
+                return new StraightFlush(h);
+            case "FourOfAKind":
+                return new FourOfAKind(h);
+            case "FullHouse":
+                return new FullHouse(h);
+            case "Flush":
+                return new Flush(h);
+            case "Straight":
+                return new Straight(h);
+            case "ThreeOfAKind":
+                return new ThreeOfAKind(h);
+            case "TwoPair":
+                return new TwoPair(h);
+            case "OnePair":
+                return new OnePair(h);
+            default:
+                return new HighCard(h);
+        }
+    }
+    
+    /**
+     * Finds the type and best five cards of a hand without knowing its type
+     * up front. The result does not depend on the type parameter.
+     */
+    @Benchmark
+    public Object bestHand()
+    {
+        return Pokerhands.getBestHand(hands[next++ & (BenchmarkHands.NUM_DEALS - 1)]);
+    }
+}
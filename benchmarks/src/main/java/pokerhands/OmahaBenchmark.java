@@ -0,0 +1,114 @@
+package pokerhands;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pokerhands.eval.HandEvaluator;
+
+/**
+ * Measures an Omaha showdown on a five card board, scored once by trying
+ * every pair of hole cards with every triple of board cards through
+ * HandEvaluator, and once through a Showdown that works the board out once
+ * for every player.
+ * @author jfritz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OmahaBenchmark
+{
+    @Param({"Omaha", "FiveCardOmaha"})
+    public Game game;
+    
+    @Param({"2", "6"})
+    public int players;
+    
+    @Param({"1", "42"})
+    public long seed;
+    
+    //the hole cards of each player and the board of each deal
+    private long[][] holes;
+    private long[] boards;
+    
+    private int next = 0;
+    
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(seed);
+        int numHoleCards = game.getNumHoleCards();
+        holes = new long[BenchmarkHands.NUM_DEALS][players];
+        boards = new long[BenchmarkHands.NUM_DEALS];
+        for (int i = 0; i < boards.length; i++)
+        {
+            Card[] cards = BenchmarkHands.deal(random, 5 + numHoleCards * players);
+            for (int c = 0; c < 5; c++)
+            {
+                boards[i] |= 1L << cards[c].getIndex();
+            }
+            for (int c = 5; c < cards.length; c++)
+            {
+                holes[i][(c - 5) / numHoleCards] |= 1L << cards[c].getIndex();
+            }
+        }
+    }
+    
+    @Benchmark
+    public int everyCombination()
+    {
+        int i = next++ & (BenchmarkHands.NUM_DEALS - 1);
+        int[] board = indices(boards[i]);
+        int best = 0;
+        for (long hole : holes[i])
+        {
+            int[] h = indices(hole);
+            for (int a = 0; a < h.length; a++)
+            {
+                for (int b = a + 1; b < h.length; b++)
+                {
+                    for (int x = 0; x < 5; x++)
+                    {
+                        for (int y = x + 1; y < 5; y++)
+                        {
+                            for (int z = y + 1; z < 5; z++)
+                            {
+                                best = Math.max(best, HandEvaluator.evaluate(h[a], h[b], board[x], board[y], board[z]));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+    
+    @Benchmark
+    public Showdown showdown()
+    {
+        int i = next++ & (BenchmarkHands.NUM_DEALS - 1);
+        return new Showdown(game, holes[i], boards[i]);
+    }
+    
+    private static int[] indices(long mask)
+    {
+        int[] cards = new int[Long.bitCount(mask)];
+        for (int i = 0; i < cards.length; i++, mask &= mask - 1)
+        {
+            cards[i] = Long.numberOfTrailingZeros(mask);
+        }
+        return cards;
+    }
+}
@@ -0,0 +1,74 @@
+package pokerhands;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pokerhands.eval.HandEvaluator;
+import pokerhands.hands.Hand;
+
+/**
+ * Measures picking the winner of a showdown, both the single winning hand
+ * and every winner of a split pot, and the single hand evaluation that each
+ * showdown is built on.
+ * @author jfritz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShowdownBenchmark 
+{
+    @Param({"2", "6", "10"})
+    public int players;
+    
+    @Param({"1", "42"})
+    public long seed;
+    
+    private List<List<Hand>> showdowns;
+    
+    private long[] masks;
+    
+    private int next = 0;
+    
+    @Setup
+    public void setUp()
+    {
+        showdowns = BenchmarkHands.showdowns(seed, players);
+        
+        masks = new long[BenchmarkHands.NUM_DEALS];
+        for (int i = 0; i < masks.length; i++)
+        {
+            masks[i] = showdowns.get(i).get(0).getMask();
+        }
+    }
+    
+    @Benchmark
+    public Object determineWinningHand()
+    {
+        return Pokerhands.determineWinningHand(showdowns.get(next++ & (BenchmarkHands.NUM_DEALS - 1)));
+    }
+    
+    @Benchmark
+    public Showdown showdown()
+    {
+        return new Showdown(showdowns.get(next++ & (BenchmarkHands.NUM_DEALS - 1)), null);
+    }
+    
+    @Benchmark
+    public int evaluate()
+    {
+        return HandEvaluator.evaluate(masks[next++ & (BenchmarkHands.NUM_DEALS - 1)]);
+    }
+}
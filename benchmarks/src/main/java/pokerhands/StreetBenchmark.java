@@ -0,0 +1,85 @@
+package pokerhands;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pokerhands.eval.HandEvaluator;
+import pokerhands.eval.HandState;
+
+/**
+ * Measures scoring one player's hand after the flop, the turn and the 
+ * river, either from scratch on every street or by adding each card to a 
+ * running state.
+ * @author jfritz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreetBenchmark 
+{
+    @Param({"1", "42"})
+    public long seed;
+    
+    //two hole cards followed by the five board cards of each deal
+    private int[][] deals;
+    
+    private final HandState state = new HandState();
+    
+    private int next = 0;
+    
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(seed);
+        deals = new int[BenchmarkHands.NUM_DEALS][];
+        for (int i = 0; i < deals.length; i++)
+        {
+            Card[] cards = BenchmarkHands.deal(random, 7);
+            deals[i] = new int[7];
+            for (int c = 0; c < 7; c++)
+            {
+                deals[i][c] = cards[c].getIndex();
+            }
+        }
+    }
+    
+    @Benchmark
+    public int fromScratch()
+    {
+        int[] d = deals[next++ & (BenchmarkHands.NUM_DEALS - 1)];
+        int flop = HandEvaluator.evaluate(d[0], d[1], d[2], d[3], d[4]);
+        int turn = HandEvaluator.evaluate(d[0], d[1], d[2], d[3], d[4], d[5]);
+        int river = HandEvaluator.evaluate(d[0], d[1], d[2], d[3], d[4], d[5], d[6]);
+        return flop + turn + river;
+    }
+    
+    @Benchmark
+    public int incremental()
+    {
+        int[] d = deals[next++ & (BenchmarkHands.NUM_DEALS - 1)];
+        state.clear();
+        for (int c = 0; c < 5; c++)
+        {
+            state.add(d[c]);
+        }
+        int flop = state.getScore();
+        state.add(d[5]);
+        int turn = state.getScore();
+        state.add(d[6]);
+        int river = state.getScore();
+        return flop + turn + river;
+    }
+}
@@ -0,0 +1,83 @@
+package pokerhands;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pokerhands.eval.WireFormat;
+
+/**
+ * Measures scoring a large batch of seven card hands straight out of a
+ * direct buffer, written either as card masks or as card indices.
+ * Scores are reported per hand.
+ * @author jfritz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireBenchmark
+{
+    private static final int BATCH_SIZE = 1 << 16;
+    
+    @Param({"1", "42"})
+    public long seed;
+    
+    private ByteBuffer masks;
+    
+    private ByteBuffer cards;
+    
+    private ByteBuffer scores;
+    
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(seed);
+        masks = ByteBuffer.allocateDirect(BATCH_SIZE * WireFormat.MASK_BYTES);
+        cards = ByteBuffer.allocateDirect(BATCH_SIZE * WireFormat.CARD_BYTES);
+        scores = ByteBuffer.allocateDirect(BATCH_SIZE * WireFormat.SCORE_BYTES);
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            long mask = 0;
+            for (Card c : BenchmarkHands.deal(random, 7))
+            {
+                mask |= c.getMask();
+            }
+            WireFormat.putMask(masks, mask);
+            WireFormat.putCards(cards, mask);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ByteBuffer evaluateMasks()
+    {
+        masks.rewind();
+        scores.clear();
+        WireFormat.evaluateMasks(masks, scores);
+        return scores;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ByteBuffer evaluateCards()
+    {
+        cards.rewind();
+        scores.clear();
+        WireFormat.evaluateCards(cards, scores);
+        return scores;
+    }
+}
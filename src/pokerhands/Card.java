@@ -1,10 +1,12 @@
 package pokerhands;
 
 /**
- *
+ * A playing card.
+ * There are exactly 52 cards, created once and shared by every deck and
+ * hand. Use valueOf or fromIndex to look them up.
  * @author jfritz
  */
-public class Card implements Comparable<Card>
+public final class Card implements Comparable<Card>
 {
     public static enum SUIT
     {
@@ -14,22 +16,127 @@ public class Card implements Comparable<Card>
         SPADES
     }
     
+    //one prime per rank, deuce first, so that the product of a set of ranks
+    //is unique to that set
+    private static final int[] PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41};
+    
+    //the short names of the ranks, deuce first, and of the suits
+    private static final String SHORT_RANKS = "23456789TJQKA";
+    private static final String SHORT_SUITS = "cdhs";
+    
+    //every card, stored at its index
+    private static final Card[] CARDS = new Card[52];
+    
+    static
+    {
+        for (SUIT s : SUIT.values())
+        {
+            for (int r = 1; r < 14; r++)
+            {
+                Card c = new Card(r, s);
+                CARDS[c.getIndex()] = c;
+            }
+        }
+    }
+    
     /**
      * 1 is an ace
      * 13 is a king
      */
-    private int rank;
+    private final int rank;
+    
+    private final SUIT suit;
     
-    private SUIT suit;
+    /**
+     * suit * 13 + rank, where a deuce has rank 0 and an ace rank 12
+     */
+    private final int index;
     
-    public Card(int rank, SUIT suit)
+    //encodings of the card that evaluators work with, worked out up front
+    private final int rankBit;
+    private final int suitBit;
+    private final int prime;
+    private final String name;
+    
+    private Card(int rank, SUIT suit)
+    {
+        this.rank = rank;
+        this.suit = suit;
+        this.index = suit.ordinal() * 13 + (rank + 11) % 13;
+        this.rankBit = 1 << (rank + 11) % 13;
+        this.suitBit = 1 << suit.ordinal();
+        this.prime = PRIMES[(rank + 11) % 13];
+        this.name = describe(rank, suit);
+    }
+    
+    /**
+     * Returns the card with the specified rank and suit.
+     * @param rank the rank of the card, from 1 (an ace) to 13 (a king)
+     * @param suit the suit of the card
+     * @return the card with the specified rank and suit
+     */
+    public static Card valueOf(int rank, SUIT suit)
     {
-        if (rank > 0 && rank < 14)
+        if (rank < 1 || rank > 13 || suit == null)
         {
-            this.rank = rank;
+            throw new IllegalArgumentException("There is no card of rank " + rank + " in suit " + suit);
+        }
+        return CARDS[suit.ordinal() * 13 + (rank + 11) % 13];
+    }
+    
+    /**
+     * Returns the card with the specified index.
+     * @param index a value from 0 to 51, as returned by getIndex
+     * @return the card with the specified index
+     */
+    public static Card fromIndex(int index)
+    {
+        return CARDS[index];
+    }
+    
+    /**
+     * Returns the card written as a rank followed by a suit, such as "Ah"
+     * for the ace of hearts or "Tc" for the ten of clubs.
+     * Ranks are written AKQJT98765432 and suits cdhs, in either case.
+     * @param s the two characters of the card
+     * @return the card that they name
+     */
+    public static Card parse(String s)
+    {
+        int rank = s.length() == 2 ? SHORT_RANKS.indexOf(Character.toUpperCase(s.charAt(0))) : -1;
+        int suit = s.length() == 2 ? SHORT_SUITS.indexOf(Character.toLowerCase(s.charAt(1))) : -1;
+        if (rank < 0 || suit < 0)
+        {
+            throw new IllegalArgumentException("Not a card: " + s);
+        }
+        return CARDS[suit * 13 + rank];
+    }
+    
+    /**
+     * Returns the cards written one after another, such as "AhKh" or
+     * "Ah Kh 2c", as a card mask.
+     * @param s the cards, with or without spaces between them
+     * @return a mask with one bit set per card index
+     */
+    public static long parseMask(String s)
+    {
+        String cards = s.replaceAll("\\s", "");
+        if (cards.length() % 2 != 0)
+        {
+            throw new IllegalArgumentException("Not a list of cards: " + s);
         }
         
-        this.suit = suit;
+        long mask = 0;
+        for (int i = 0; i < cards.length(); i += 2)
+        {
+            long bit = parse(cards.substring(i, i + 2)).getMask();
+            if ((mask & bit) != 0)
+            {
+                throw new IllegalArgumentException("The same card cannot be dealt twice: " + s);
+            }
+            mask |= bit;
+        }
+        return mask;
     }
     
     public int getRank()
@@ -41,25 +148,68 @@ public class Card implements Comparable<Card>
         return this.suit;
     }
     
+    /**
+     * Returns a number from 0 to 51 that identifies this card.
+     * The index is suit * 13 + rank, where a deuce has rank 0 and an ace
+     * has rank 12, so that aces are high within each suit.
+     * @return the index of this card
+     */
+    public int getIndex()
+    {
+        return this.index;
+    }
+    
+    /**
+     * Returns the bit for this card in a 64-bit card mask.
+     * @return 1 shifted left by the index of this card
+     */
+    public long getMask()
+    {
+        return 1L << this.index;
+    }
+    
+    /**
+     * Returns the bit for this card's rank in a 13-bit rank mask.
+     * Deuces are the lowest bit and aces are the highest.
+     * @return the rank bit of this card
+     */
+    public int getRankBit()
+    {
+        return this.rankBit;
+    }
+    
+    /**
+     * Returns the bit for this card's suit in a 4-bit suit mask.
+     * @return the suit bit of this card
+     */
+    public int getSuitBit()
+    {
+        return this.suitBit;
+    }
+    
+    /**
+     * Returns the prime number assigned to this card's rank.
+     * Deuces are 2 and aces are 41.
+     * @return the prime number assigned to this card's rank
+     */
+    public int getPrime()
+    {
+        return this.prime;
+    }
+    
     @Override
-    public int compareTo(Card t) 
+    public int compareTo(Card t)
     {
-        if (this.rank < t.getRank())
-        {
-            return -1;
-        }
-        else if (this.rank == t.getRank())
-        {
-            return 0;
-        }
-        else
-        {
-            return 1;
-        }
+        return Integer.compare(this.rank, t.getRank());
     }
     
     @Override
     public String toString()
+    {
+        return this.name;
+    }
+    
+    private static String describe(int rank, SUIT suit)
     {
         StringBuilder sb = new StringBuilder();
         
@@ -83,22 +233,7 @@ public class Card implements Comparable<Card>
         }
         
         sb.append(" of ");
-        
-        switch (suit)
-        {
-            case CLUBS:
-                sb.append("CLUBS");
-                break;
-            case DIAMONDS:
-                sb.append("DIAMONDS");
-                break;
-            case HEARTS:
-                sb.append("HEARTS");
-                break;
-            case SPADES:
-                sb.append("SPADES");
-                break;
-        }
+        sb.append(suit.name());
         
         return sb.toString();
     }
@@ -2,42 +2,135 @@ package pokerhands;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import pokerhands.Card.SUIT;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import pokerhands.metrics.DealEvent;
+import pokerhands.metrics.EvaluationMetrics;
 
 /**
  *
  * @author jfritz
  */
-public class Deck 
+public class Deck
 {
-    ArrayList<Card> cards = new ArrayList<>();
+    //the indices of the cards, in the order they will be dealt
+    private final int[] cards = new int[52];
     
     private int index = 0;
     
+    //the generator to shuffle with, or null to use the current thread's
+    //ThreadLocalRandom
+    private final RandomGenerator random;
+    
+    //whether each shuffle is recorded in the deal metrics and as a flight
+    //recorder event
+    private final boolean recorded;
+    
     /**
      * Creates a new Deck of cards.
      * A deck contains 52 total cards; 13 of each of the four suits.
+     * The deck is shuffled with the ThreadLocalRandom of whichever thread
+     * shuffles it, so decks on different threads never contend.
      */
     public Deck()
     {
-        for (SUIT s : Card.SUIT.values())
+        this(null);
+    }
+    
+    /**
+     * Creates a new Deck of cards that is shuffled with the specified
+     * generator. Pass a seeded generator, such as a SplittableRandom, to deal
+     * the same cards every run. The generator should only be used by one
+     * thread at a time.
+     * @param random the generator to shuffle with, or null to use the
+     * current thread's ThreadLocalRandom
+     */
+    public Deck(RandomGenerator random)
+    {
+        this(random, true);
+    }
+    
+    /**
+     * Creates a new Deck of cards that is shuffled with the specified
+     * generator, and that can leave its shuffles unrecorded. A caller that
+     * deals many times in a loop can leave them out and count all of its
+     * deals at once, instead of timing every shuffle and creating an event
+     * for it.
+     * @param random the generator to shuffle with, or null to use the
+     * current thread's ThreadLocalRandom
+     * @param recorded false to leave the deck's shuffles out of the deal
+     * metrics and the flight recorder
+     */
+    public Deck(RandomGenerator random, boolean recorded)
+    {
+        for (int i = 0; i < cards.length; i++)
         {
-            for (int r = 1; r < 14; r++)
-            {
-                cards.add(new Card(r, s));
-            }
+            cards[i] = i;
         }
+        this.random = random;
+        this.recorded = recorded;
     }
     
+    /**
+     * Shuffles the whole deck and starts dealing from the top again.
+     */
     public void shuffle()
     {
-        Random generator = new Random();
+        this.shuffle(cards.length);
+    }
+    
+    /**
+     * Shuffles only as many cards as will be dealt and starts dealing from
+     * the top again. The cards dealt are just as random as after a full
+     * shuffle, but the cards below them are not, so no more than the
+     * specified number of cards should be drawn before the next shuffle.
+     * @param howMany the number of cards that will be dealt
+     */
+    public void shuffle(int howMany)
+    {
+        if (howMany < 0 || howMany > cards.length)
+        {
+            throw new IllegalArgumentException("Cannot shuffle " + howMany + " cards of " + cards.length);
+        }
+        
+        if (!recorded)
+        {
+            this.shuffleCards(howMany);
+            return;
+        }
+        
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        DealEvent event = new DealEvent();
+        event.begin();
+        
+        this.shuffleCards(howMany);
+        
+        if (EvaluationMetrics.ENABLED) EvaluationMetrics.DEAL.record(start, bytes, 1);
+        if (event.shouldCommit())
+        {
+            event.cards = howMany;
+            event.commit();
+        }
+    }
+    
+    private void shuffleCards(int howMany)
+    {
+        RandomGenerator generator = random == null ? ThreadLocalRandom.current() : random;
         
-        for (int i = 0; i < 1000; i++)
+        //Fisher-Yates, stopping once the cards to deal have been picked. the
+        //last card is left where it is, as nothing remains to swap it with
+        int last = Math.min(howMany, cards.length - 1);
+        for (int i = 0; i < last; i++)
         {
-            int index1 = generator.nextInt(52);
-            cards.add(cards.remove(index1));
+            int j = i + generator.nextInt(cards.length - i);
+            int c = cards[j];
+            cards[j] = cards[i];
+            cards[i] = c;
         }
         
         this.index = 0;
@@ -46,12 +139,12 @@ public class Deck
     public Card drawCard()
     {
         this.index++;
-        return cards.get(index - 1);
+        return Card.fromIndex(cards[index - 1]);
     }
     
     public List<Card> drawCards(int howMany)
     {
-        ArrayList<Card> drawnCards = new ArrayList<>();
+        ArrayList<Card> drawnCards = new ArrayList<>(howMany);
         for(int i = 0; i < howMany; i++)
         {
             drawnCards.add(this.drawCard());
@@ -63,9 +156,9 @@ public class Deck
     public String toString()
     {
         StringBuilder sb = new StringBuilder();
-        for (Card c : cards)
+        for (int c : cards)
         {
-            sb.append(c.toString());
+            sb.append(Card.fromIndex(c).toString());
             sb.append(System.getProperty("line.separator"));
         }
         return sb.toString();
@@ -0,0 +1,171 @@
+package pokerhands;
+
+import pokerhands.eval.HandEvaluator;
+import pokerhands.eval.OmahaEvaluator;
+import pokerhands.metrics.EvaluateEvent;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * The games whose showdowns can be scored. A game decides how many hole
+ * cards each player holds and how they are combined with the board.
+ * @author jfritz
+ */
+public enum Game
+{
+    /**
+     * Texas hold'em: the best five of a player's two hole cards and the
+     * board.
+     */
+    HoldEm(2),
+    
+    /**
+     * Omaha: exactly two of a player's four hole cards and exactly three
+     * cards of the board.
+     */
+    Omaha(4),
+    
+    /**
+     * Five card Omaha: exactly two of a player's five hole cards and exactly
+     * three cards of the board.
+     */
+    FiveCardOmaha(5);
+    
+    private final int numHoleCards;
+    
+    Game(int numHoleCards)
+    {
+        this.numHoleCards = numHoleCards;
+    }
+    
+    public int getNumHoleCards()
+    {
+        return numHoleCards;
+    }
+    
+    public boolean isOmaha()
+    {
+        return this != HoldEm;
+    }
+    
+    /**
+     * Scores every player's hand on a shared board. The board is only worked
+     * out once, however many players there are.
+     * @param players the hole cards of each player, as card masks
+     * @param board the board cards, as a card mask
+     * @param scores receives the packed score of each player's hand
+     */
+    public void score(long[] players, long board, int[] scores)
+    {
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        
+        this.score(players, board, scores, this.isOmaha() ? new OmahaEvaluator(board) : null);
+        
+        if (EvaluationMetrics.ENABLED)
+        {
+            EvaluationMetrics.EVALUATE.record(start, bytes, players.length);
+            EvaluationMetrics.countTypes(scores, players.length);
+        }
+        if (event.shouldCommit())
+        {
+            event.handSize = players.length == 0 ? 0 : Long.bitCount(players[0]) + Long.bitCount(board);
+            event.players = players.length;
+            event.setScores(scores, players.length);
+            event.commit();
+        }
+    }
+    
+    /**
+     * Returns a scorer for showdowns of this game, for code that scores one
+     * board after another.
+     * @return a new scorer
+     */
+    public Scorer newScorer()
+    {
+        return new Scorer(this);
+    }
+    
+    /**
+     * Scores the players with an Omaha evaluator that is already set to the
+     * board, or null for hold'em. Nothing is recorded here; that is left to
+     * the public entry points.
+     */
+    private void score(long[] players, long board, int[] scores, OmahaEvaluator omaha)
+    {
+        if (omaha == null)
+        {
+            for (int p = 0; p < players.length; p++)
+            {
+                scores[p] = HandEvaluator.evaluate(players[p] | board);
+            }
+        }
+        else
+        {
+            for (int p = 0; p < players.length; p++)
+            {
+                scores[p] = omaha.evaluate(players[p]);
+            }
+        }
+    }
+    
+    /**
+     * Scores showdown after showdown of one game. An Omaha scorer keeps its
+     * evaluator and only moves it when the board changes, so simulations
+     * that deal a new board every time build nothing per deal.
+     *
+     * Unlike Game.score, a scorer records no metrics or flight recorder
+     * events, as reading the clock for every showdown would cost about as
+     * much as scoring it. Code that scores with one records them once per
+     * calculation instead, as the equity calculators and the table
+     * simulation do.
+     *
+     * A scorer is not safe to share between threads; each thread keeps its
+     * own.
+     */
+    public static final class Scorer
+    {
+        private final Game game;
+        
+        //built with the first board, then moved to each new one
+        private OmahaEvaluator omaha;
+        
+        private Scorer(Game game)
+        {
+            this.game = game;
+        }
+        
+        public Game getGame()
+        {
+            return game;
+        }
+        
+        /**
+         * Scores every player's hand on a shared board, as Game.score does,
+         * without recording anything.
+         * @param players the hole cards of each player, as card masks
+         * @param board the board cards, as a card mask
+         * @param scores receives the packed score of each player's hand
+         */
+        public void score(long[] players, long board, int[] scores)
+        {
+            if (game.isOmaha())
+            {
+                if (omaha == null)
+                {
+                    omaha = new OmahaEvaluator(board);
+                }
+                else if (omaha.getBoard() != board)
+                {
+                    omaha.setBoard(board);
+                }
+            }
+            game.score(players, board, scores, omaha);
+        }
+    }
+}
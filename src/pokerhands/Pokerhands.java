@@ -1,10 +1,11 @@
 package pokerhands;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import pokerhands.eval.HandScore;
 import pokerhands.hands.*;
+import pokerhands.metrics.CompareEvent;
+import pokerhands.metrics.EvaluationMetrics;
 
 /**
  *
@@ -24,14 +25,14 @@ public class Pokerhands
         FourOfAKind(7),
         StraightFlush(8),
         RoyalFlush(9);
-
+        
         private int score;
-
+        
         Type(int score)
         {
             this.score = score;
         }
-
+        
         public int getScore()
         {
             return this.score;
@@ -72,21 +73,21 @@ public class Pokerhands
     {
         Deck d = new Deck();
         d.shuffle();
-
+        
         //deal two hands
         Hand player1 = new Hand(d.drawCard());
         Hand player2 = new Hand(d.drawCard());
         player1.add(d.drawCard());
         player2.add(d.drawCard());
-
+        
         //deal the flop
         d.drawCard();
         Hand community = new Hand(d.drawCards(3));
-
+        
         //deal the river
         d.drawCard();
         community.add(d.drawCard());
-
+        
         //deal the turn
         d.drawCard();
         community.add(d.drawCard());
@@ -101,213 +102,147 @@ public class Pokerhands
         System.out.println(community.toString());
         System.out.println();
         
-        Hand p1AllCards = new Hand(player1, community);
-        Hand p2AllCards = new Hand(player2, community);
+        List<Hand> players = new ArrayList<>();
+        players.add(player1);
+        players.add(player2);
         
-        List<Hand> allHands = new ArrayList<>();
-        allHands.add(p1AllCards);
-        allHands.add(p2AllCards);
+        Showdown showdown = new Showdown(players, community);
         
-        HandType winner = determineWinningHand(allHands);
-        
-        System.out.println("The winning hand has " + winner.getType().toString() + ": " + winner.getHand().toString());
+        //every player holding the winning hand shares the pot
+        for (int p : showdown.getWinners())
+        {
+            HandType best = getBestHand(new Hand(players.get(p), community));
+            String outcome = showdown.isSplitPot() ? " splits the pot with " : " wins with ";
+            System.out.println("Player " + (p + 1) + outcome + best.getType().toString() + ": " + best.getHand().toString());
+        }
     }
     
-    private HandType determineWinningHand(List<Hand> hands)
+    /**
+     * Finds the strongest of the specified hands, along with its best five
+     * cards. When several hands tie for the best score, the first of them is
+     * returned and the number of tied hands is reported by the result.
+     * @param hands the hands to compare, each of five to seven cards
+     * @return the winning hand and its type
+     */
+    static HandType determineWinningHand(List<Hand> hands)
     {
-        List<HandType> qualifiedHands = new ArrayList<>();
-        
+        if (hands.isEmpty())
+        {
+            throw new IllegalArgumentException("At least one hand is needed to find a winner");
+        }
         for (Hand h : hands)
         {
-            RoyalFlush rf = new RoyalFlush(h);
-            if (rf.isValid())
-            {
-                qualifiedHands.add(new HandType(rf, Type.RoyalFlush));
-            }
-
-            StraightFlush sf = new StraightFlush(h);
-            if (sf.isValid())
-            {
-                qualifiedHands.add(new HandType(sf, Type.StraightFlush));
-            }
-
-            FourOfAKind fk = new FourOfAKind(h);
-            if (fk.isValid())
-            {
-                qualifiedHands.add(new HandType(fk, Type.FourOfAKind));
-            }
-
-            FullHouse fh = new FullHouse(h);
-            if (fh.isValid())
-            {
-                qualifiedHands.add(new HandType(fh, Type.FullHouse));
-            }
-
-            Flush f = new Flush(h);
-            if (f.isValid())
-            {
-                qualifiedHands.add(new HandType(f, Type.Flush));
-            }
-
-            Straight s = new Straight(h);
-            if (s.isValid())
-            {
-                qualifiedHands.add(new HandType(s, Type.Straight));
-            }
-
-            ThreeOfAKind tk = new ThreeOfAKind(h);
-            if (tk.isValid())
-            {
-                qualifiedHands.add(new HandType(tk, Type.ThreeOfAKind));
-            }
-
-            TwoPair tp = new TwoPair(h);
-            if (tp.isValid())
+            if (h.getNumCards() < 5 || h.getNumCards() > 7)
             {
-                qualifiedHands.add(new HandType(tp, Type.TwoPair));
-            }
-
-            OnePair op = new OnePair(h);
-            if (op.isValid())
-            {
-                qualifiedHands.add(new HandType(op, Type.OnePair));
-            }
-
-            HighCard hc = new HighCard(h);
-            if (hc.isValid())
-            {
-                qualifiedHands.add(new HandType(hc, Type.HighCard));
+                throw new IllegalArgumentException("Only hands of five to seven cards can be compared, not " + h.getNumCards());
             }
         }
         
-        Collections.sort(qualifiedHands, new Comparator<HandType>() {
-
-            @Override
-            public int compare(HandType t, HandType t1) 
-            {
-                if (t.getType().getScore() > t1.getType().getScore())
-                {
-                    return 1;
-                }
-                else if (t.getType().getScore() < t1.getType().getScore())
-                {
-                    return -1;
-                }
-                else
-                {
-                    // no need to explicitly test royal flush - it qualifies
-                    // as a straight flush, and wins by the fact that it is the
-                    // highest possible straight flush
-                    if (t.getType() == Type.RoyalFlush || t.getType() == Type.StraightFlush)
-                    {
-                        StraightFlush sf1 = (StraightFlush)t.getHand();
-                        StraightFlush sf2 = (StraightFlush)t1.getHand();
-                        if (sf1.isValid() && sf2.isValid())
-                        {
-                            return sf1.compareTo(sf2);
-                        }
-                    }
-                    
-                    if (t.getType() == Type.FourOfAKind)
-                    {
-                        FourOfAKind fk1 = (FourOfAKind)t.getHand();
-                        FourOfAKind fk2 = (FourOfAKind)t1.getHand();
-                        if (fk1.isValid() && fk2.isValid())
-                        {
-                            return fk1.compareTo(fk2);
-                        }
-                    }
-                    
-                    if (t.getType() == Type.FullHouse)
-                    {
-                        FullHouse fh1 = (FullHouse)t.getHand();
-                        FullHouse fh2 = (FullHouse)t1.getHand();
-                        if (fh1.isValid() && fh2.isValid())
-                        {
-                            return fh1.compareTo(fh2);
-                        }
-                    }
-                    
-                    if (t.getType() == Type.Flush)
-                    {
-                        Flush f1 = (Flush)t.getHand();
-                        Flush f2 = (Flush)t1.getHand();
-                        if (f1.isValid() && f2.isValid())
-                        {
-                            return f1.compareTo(f2);
-                        }
-                    }
-                    
-                    if (t.getType() == Type.Straight)
-                    {
-                        Straight s1 = (Straight)t.getHand();
-                        Straight s2 = (Straight)t1.getHand();
-                        if (s1.isValid() && s2.isValid())
-                        {
-                            return s1.compareTo(s2);
-                        }
-                    }
-                    
-                    if (t.getType() == Type.ThreeOfAKind)
-                    {
-                        ThreeOfAKind tk1 = (ThreeOfAKind)t.getHand();
-                        ThreeOfAKind tk2 = (ThreeOfAKind)t1.getHand();
-                        if (tk1.isValid() && tk2.isValid())
-                        {
-                            return tk1.compareTo(tk2);
-                        }
-                    }
-
-                    if (t.getType() == Type.TwoPair)
-                    {
-                        TwoPair tp1 = (TwoPair)t.getHand();
-                        TwoPair tp2 = (TwoPair)t1.getHand();
-                        if (tp1.isValid() && tp2.isValid())
-                        {
-                            return tp1.compareTo(tp2);
-                        }
-                    }
-
-                    if (t.getType() == Type.OnePair)
-                    {
-                        OnePair op1 = (OnePair)t.getHand();
-                        OnePair op2 = (OnePair)t1.getHand();
-                        if (op1.isValid() && op2.isValid())
-                        {
-                            return op1.compareTo(op2);
-                        }
-                    }
-
-                    if (t.getType() == Type.HighCard)
-                    {
-                        HighCard hc1 = (HighCard)t.getHand();
-                        HighCard hc2 = (HighCard)t1.getHand();
-                        if (hc1.isValid() && hc2.isValid())
-                        {
-                            return hc1.compareTo(hc2);
-                        }
-                    }
-                    
-                    //this can only happen if two identical crap hands are dealt
-                    return 0;
-                }
-            }
-            
-        });
+        //a single table lookup scores each hand, and the scores can be
+        //compared directly, so there is no need to try every type of hand
+        //against every player
+        int[] scores = new int[hands.size()];
+        for (int i = 0; i < scores.length; i++)
+        {
+            scores[i] = hands.get(i).getScore();
+        }
+        
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        CompareEvent event = new CompareEvent();
+        event.begin();
         
-        //the highest valued hand is the winner
-        return qualifiedHands.get(qualifiedHands.size() - 1);
+        int[] tied = new int[scores.length];
+        int numWinners = Showdown.findWinners(scores, scores.length, tied);
+        Hand winner = hands.get(tied[0]);
+        
+        //only the winning hand needs to be broken down into its best five cards
+        Type t = HandScore.getType(scores[tied[0]]);
+        Hand best = getBestFiveCards(winner, t);
+        
+        if (EvaluationMetrics.ENABLED) EvaluationMetrics.COMPARE.record(start, bytes, hands.size());
+        if (event.shouldCommit())
+        {
+            event.handSize = winner.getNumCards();
+            event.players = hands.size();
+            event.winners = numWinners;
+            event.category = t.name();
+            event.commit();
+        }
+        return new HandType(best.isValid() ? best : winner, t, numWinners);
     }
     
-    private class HandType
+    /**
+     * Finds the type of the best hand that can be made from the specified
+     * cards, along with the five cards that make it up.
+     * The cards are analysed once, the types are checked from the strongest
+     * down, and only the type that matches is broken down into its cards,
+     * reusing the same analysis.
+     * @param h a hand of five or more cards
+     * @return the best hand and its type
+     */
+    static HandType getBestHand(Hand h)
+    {
+        Type t = h.getAnalysis().getType();
+        Hand best = getBestFiveCards(h, t);
+        return new HandType(best.isValid() ? best : h, t);
+    }
+    
+    /**
+     * Picks the five cards that make up a hand of the specified type.
+     * @param h the hand to choose the cards from
+     * @param t the type of hand that the cards are known to make
+     * @return a hand of the best five cards
+     */
+    private static Hand getBestFiveCards(Hand h, Type t)
+    {
+        switch (t)
+        {
+            case RoyalFlush:
+                return new RoyalFlush(h);
+            case StraightFlush:
+                return new StraightFlush(h);
+            case FourOfAKind:
+                return new FourOfAKind(h);
+            case FullHouse:
+                return new FullHouse(h);
+            case Flush:
+                return new Flush(h);
+            case Straight:
+                return new Straight(h);
+            case ThreeOfAKind:
+                return new ThreeOfAKind(h);
+            case TwoPair:
+                return new TwoPair(h);
+            case OnePair:
+                return new OnePair(h);
+            default:
+                return new HighCard(h);
+        }
+    }
+    
+    static class HandType
     {       
         private Hand h;
         private Type t;
         
+        //the number of hands that tied with this one for the best score
+        private int numWinners;
+        
         public HandType(Hand h, Type t)
+        {
+            this(h, t, 1);
+        }
+        
+        public HandType(Hand h, Type t, int numWinners)
         {
             this.h = h;
             this.t = t;
+            this.numWinners = numWinners;
         }
         
         public Hand getHand()
@@ -319,6 +254,20 @@ public class Pokerhands
         {
             return t;
         }
+        
+        public int getNumWinners()
+        {
+            return numWinners;
+        }
+        
+        /**
+         * Returns true if other hands tied with this one for the best score.
+         * @return true if the pot is split
+         */
+        public boolean isSplitPot()
+        {
+            return numWinners > 1;
+        }
     }
     
     /**
@@ -0,0 +1,241 @@
+package pokerhands;
+
+import java.util.Arrays;
+import java.util.List;
+import pokerhands.Pokerhands.Type;
+import pokerhands.eval.HandScore;
+import pokerhands.hands.Hand;
+import pokerhands.metrics.CompareEvent;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * The result of a showdown between any number of players.
+ * Every player's hand is scored once, and the winners are picked out in the
+ * same pass, so a pot that is split between several players reports all of
+ * them.
+ * @author jfritz
+ */
+public class Showdown
+{
+    //the score of each player's best five cards
+    private final int[] scores;
+    
+    //the players holding the winning score, in the order they were given
+    private final int[] winners;
+    
+    private final int winningScore;
+    
+    /**
+     * Plays out a showdown of Texas hold'em between players who share a
+     * board.
+     * @param players the cards held by each player
+     * @param board the community cards, or null if the players' hands are
+     * already complete
+     */
+    public Showdown(List<Hand> players, Hand board)
+    {
+        this(masks(players), board == null ? 0 : board.getMask());
+    }
+    
+    /**
+     * Plays out a showdown of Texas hold'em between players who share a
+     * board.
+     * @param players the cards held by each player, as card masks
+     * @param board the community cards, as a card mask
+     * @throws IllegalArgumentException if a player holds a card that is on
+     * the board or in another player's hole cards
+     */
+    public Showdown(long[] players, long board)
+    {
+        this(Game.HoldEm, players, board);
+    }
+    
+    /**
+     * Plays out a showdown of the specified game between players who share a
+     * board.
+     * @param game the game being played
+     * @param players the hole cards of each player
+     * @param board the community cards, or null if the players' hands are
+     * already complete
+     */
+    public Showdown(Game game, List<Hand> players, Hand board)
+    {
+        this(game, masks(players), board == null ? 0 : board.getMask());
+    }
+    
+    /**
+     * Plays out a showdown of the specified game between players who share a
+     * board.
+     * @param game the game being played
+     * @param players the hole cards of each player, as card masks
+     * @param board the community cards, as a card mask, or 0 if the players'
+     * hands are already complete
+     * @throws IllegalArgumentException if a player holds a card that is on
+     * the board or in another player's hole cards
+     */
+    public Showdown(Game game, long[] players, long board)
+    {
+        if (players.length == 0)
+        {
+            throw new IllegalArgumentException("A showdown needs at least one player");
+        }
+        
+        //hole cards cannot be on the board or in anyone else's hand, but
+        //hands that are already complete share the cards that were on it
+        long used = board;
+        for (int p = 0; p < players.length; p++)
+        {
+            if ((used & players[p]) != 0)
+            {
+                throw new IllegalArgumentException("The same card cannot be dealt twice");
+            }
+            if (board != 0) used |= players[p];
+            
+            if (game.isOmaha())
+            {
+                if (Long.bitCount(players[p]) != game.getNumHoleCards())
+                {
+                    throw new IllegalArgumentException("Player " + (p + 1) + " must hold exactly " + game.getNumHoleCards() + " cards in " + game);
+                }
+                continue;
+            }
+            
+            int numCards = Long.bitCount(players[p] | board);
+            if (numCards < 5 || numCards > 7)
+            {
+                throw new IllegalArgumentException("Player " + (p + 1) + " has " + numCards + " cards, but only hands of five to seven cards can be compared");
+            }
+        }
+        
+        scores = new int[players.length];
+        game.score(players, board, scores);
+        
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        CompareEvent event = new CompareEvent();
+        event.begin();
+        
+        int[] tied = new int[players.length];
+        int numWinners = findWinners(scores, players.length, tied);
+        
+        winningScore = scores[tied[0]];
+        winners = Arrays.copyOf(tied, numWinners);
+        
+        if (EvaluationMetrics.ENABLED) EvaluationMetrics.COMPARE.record(start, bytes, players.length);
+        if (event.shouldCommit())
+        {
+            event.handSize = Long.bitCount(players[winners[0]]) + Long.bitCount(board);
+            event.players = players.length;
+            event.winners = numWinners;
+            event.category = HandScore.getType(winningScore).name();
+            event.commit();
+        }
+    }
+    
+    /**
+     * Picks out the players holding the best of the specified scores, in
+     * one pass over them. Every showdown in the project settles its pot
+     * through this, so ties are broken the same way everywhere.
+     * @param scores the score of each player
+     * @param numPlayers the number of scores to compare, from the start
+     * @param winners filled with the position of each winning player, in
+     * the order they were given, and at least numPlayers long
+     * @return the number of winners, so that the winning score is
+     * scores[winners[0]]
+     */
+    public static int findWinners(int[] scores, int numPlayers, int[] winners)
+    {
+        if (numPlayers < 1)
+        {
+            throw new IllegalArgumentException("A showdown needs at least one player");
+        }
+        
+        int numWinners = 0;
+        int best = -1;
+        for (int p = 0; p < numPlayers; p++)
+        {
+            int score = scores[p];
+            
+            //a better score starts a new list of winners, and an equal score
+            //joins the current one
+            if (score > best)
+            {
+                best = score;
+                numWinners = 0;
+            }
+            if (score == best)
+            {
+                winners[numWinners++] = p;
+            }
+        }
+        return numWinners;
+    }
+    
+    private static long[] masks(List<Hand> hands)
+    {
+        long[] masks = new long[hands.size()];
+        for (int i = 0; i < masks.length; i++)
+        {
+            masks[i] = hands.get(i).getMask();
+        }
+        return masks;
+    }
+    
+    public int getNumPlayers()
+    {
+        return scores.length;
+    }
+    
+    /**
+     * Returns the packed score of a player's best five cards.
+     * @param player the position of the player, starting at 0
+     * @return the player's score, as returned by HandEvaluator or
+     * OmahaEvaluator
+     */
+    public int getScore(int player)
+    {
+        return scores[player];
+    }
+    
+    public int getWinningScore()
+    {
+        return winningScore;
+    }
+    
+    public Type getWinningType()
+    {
+        return HandScore.getType(winningScore);
+    }
+    
+    /**
+     * Returns the positions of every player who holds the winning hand.
+     * @return the winning players, in the order they were given
+     */
+    public int[] getWinners()
+    {
+        return winners.clone();
+    }
+    
+    public int getNumWinners()
+    {
+        return winners.length;
+    }
+    
+    public boolean isWinner(int player)
+    {
+        return scores[player] == winningScore;
+    }
+    
+    /**
+     * Returns true if more than one player holds the winning hand.
+     * @return true if the pot is split
+     */
+    public boolean isSplitPot()
+    {
+        return winners.length > 1;
+    }
+}
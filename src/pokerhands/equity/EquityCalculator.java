@@ -0,0 +1,308 @@
+package pokerhands.equity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import pokerhands.Game;
+import pokerhands.hands.Hand;
+
+/**
+ * Works out how often each player wins a hand of Texas hold'em or Omaha.
+ * Players are given as their hole cards. Any board cards that have
+ * already been dealt, and any dead cards that can no longer come, are taken
+ * out of the deck before the rest of the board is dealt.
+ *
+ * Showdowns are ranked the same way Pokerhands ranks them, by comparing the
+ * scores of each player's best five cards.
+ * @author jfritz
+ */
+public class EquityCalculator
+{
+    //tasks with more trials than this are split in two and run in parallel
+    private static final long TRIALS_PER_TASK = 16384;
+    
+    private final Game game;
+    
+    private final long[] players;
+    private final long board;
+    private final int boardSize;
+    
+    //the cards that are still in the deck
+    private final int[] deck;
+    
+    private final ForkJoinPool pool;
+    
+    /**
+     * Creates a calculator for Texas hold'em that runs on the common 
+     * fork/join pool.
+     * @param players the hole cards of each player
+     * @param board the board cards dealt so far, or null if there are none
+     * @param dead cards that cannot be dealt, or null if there are none
+     */
+    public EquityCalculator(List<Hand> players, Hand board, Hand dead)
+    {
+        this(Game.HoldEm, players, board, dead, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates a calculator for Texas hold'em that runs on the specified 
+     * pool.
+     * @param players the hole cards of each player
+     * @param board the board cards dealt so far, or null if there are none
+     * @param dead cards that cannot be dealt, or null if there are none
+     * @param pool the pool to run on
+     */
+    public EquityCalculator(List<Hand> players, Hand board, Hand dead, ForkJoinPool pool)
+    {
+        this(Game.HoldEm, players, board, dead, pool);
+    }
+    
+    /**
+     * Creates a calculator for the specified game that runs on the common
+     * fork/join pool.
+     * @param game the game being played
+     * @param players the hole cards of each player
+     * @param board the board cards dealt so far, or null if there are none
+     * @param dead cards that cannot be dealt, or null if there are none
+     */
+    public EquityCalculator(Game game, List<Hand> players, Hand board, Hand dead)
+    {
+        this(game, players, board, dead, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates a calculator for the specified game that runs on the specified
+     * pool.
+     * @param game the game being played
+     * @param players the hole cards of each player
+     * @param board the board cards dealt so far, or null if there are none
+     * @param dead cards that cannot be dealt, or null if there are none
+     * @param pool the pool to run on
+     */
+    public EquityCalculator(Game game, List<Hand> players, Hand board, Hand dead, ForkJoinPool pool)
+    {
+        if (players == null || players.size() < 2)
+        {
+            throw new IllegalArgumentException("At least two players are needed");
+        }
+        
+        this.game = game;
+        
+        long used = 0;
+        this.players = new long[players.size()];
+        for (int p = 0; p < this.players.length; p++)
+        {
+            Hand h = players.get(p);
+            if (h == null || h.getNumCards() != game.getNumHoleCards())
+            {
+                throw new IllegalArgumentException("Player " + (p + 1) + " must hold exactly " + game.getNumHoleCards() + " cards in " + game);
+            }
+            this.players[p] = h.getMask();
+            used = claim(used, h.getMask());
+        }
+        
+        this.board = board == null ? 0 : board.getMask();
+        this.boardSize = Long.bitCount(this.board);
+        if (this.boardSize > 5)
+        {
+            throw new IllegalArgumentException("The board cannot hold more than five cards");
+        }
+        used = claim(used, this.board);
+        used = claim(used, dead == null ? 0 : dead.getMask());
+        
+        int numLeft = 52 - Long.bitCount(used);
+        if (numLeft < 5 - this.boardSize)
+        {
+            throw new IllegalArgumentException("There are not enough cards left to finish the board");
+        }
+        
+        this.deck = new int[numLeft];
+        int i = 0;
+        for (int c = 0; c < 52; c++)
+        {
+            if ((used & 1L << c) == 0) deck[i++] = c;
+        }
+        
+        this.pool = pool;
+    }
+    
+    /**
+     * Estimates each player's equity by dealing out the rest of the board at
+     * random the specified number of times.
+     * @param trials the number of boards to deal
+     * @return the equity of each player
+     */
+    public EquityResult sample(long trials)
+    {
+        return this.sample(trials, new SplittableRandom());
+    }
+    
+    /**
+     * Estimates each player's equity by dealing out the rest of the board at
+     * random the specified number of times. The same seed always deals the
+     * same boards, however many threads the pool has.
+     * @param trials the number of boards to deal
+     * @param seed the seed for the random number generator
+     * @return the equity of each player
+     */
+    public EquityResult sample(long trials, long seed)
+    {
+        return this.sample(trials, new SplittableRandom(seed));
+    }
+    
+    private EquityResult sample(long trials, SplittableRandom random)
+    {
+        return EquityTally.calculate(pool, new SampleTask(trials, random));
+    }
+    
+    /**
+     * Works out each player's exact equity by dealing out every possible
+     * rest of the board once.
+     * @return the equity of each player
+     */
+    public EquityResult enumerate()
+    {
+        return EquityTally.calculate(pool, new EnumerateTask());
+    }
+    
+    /**
+     * Adds cards to the set of cards that are accounted for, making sure that
+     * none of them have been used already.
+     */
+    private static long claim(long used, long cards)
+    {
+        if ((used & cards) != 0)
+        {
+            throw new IllegalArgumentException("The same card cannot be dealt twice");
+        }
+        return used | cards;
+    }
+    
+    /**
+     * Deals a number of random boards, splitting the work with other threads
+     * when there is enough of it.
+     */
+    private class SampleTask extends RecursiveTask<EquityTally>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final long trials;
+        private final SplittableRandom random;
+        
+        SampleTask(long trials, SplittableRandom random)
+        {
+            this.trials = trials;
+            this.random = random;
+        }
+        
+        @Override
+        protected EquityTally compute()
+        {
+            if (trials > TRIALS_PER_TASK)
+            {
+                SampleTask half = new SampleTask(trials / 2, random.split());
+                half.fork();
+                EquityTally tally = new SampleTask(trials - trials / 2, random).compute();
+                tally.add(half.join());
+                return tally;
+            }
+            
+            EquityTally tally = new EquityTally(game, players.length);
+            int[] cards = deck.clone();
+            int needed = 5 - boardSize;
+            for (long t = 0; t < trials; t++)
+            {
+                //a partial shuffle is enough, as only the first few cards
+                //of the deck are ever dealt
+                long b = board;
+                for (int i = 0; i < needed; i++)
+                {
+                    int j = i + random.nextInt(cards.length - i);
+                    int c = cards[j];
+                    cards[j] = cards[i];
+                    cards[i] = c;
+                    b |= 1L << c;
+                }
+                tally.record(players, b);
+            }
+            return tally;
+        }
+    }
+    
+    /**
+     * Deals every possible rest of the board, handing each choice of the
+     * first card still to come to a separate subtask. The cards of each board
+     * are dealt in the order they appear in the deck, so no board is dealt
+     * twice.
+     */
+    private class EnumerateTask extends RecursiveTask<EquityTally>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        //the position in the deck of the first card to deal, or -1 to split
+        //the work by first card
+        private final int first;
+        
+        EnumerateTask()
+        {
+            this(-1);
+        }
+        
+        EnumerateTask(int first)
+        {
+            this.first = first;
+        }
+        
+        @Override
+        protected EquityTally compute()
+        {
+            int needed = 5 - boardSize;
+            if (first < 0 && needed > 0)
+            {
+                List<EnumerateTask> tasks = new ArrayList<>();
+                for (int i = 0; i + needed <= deck.length; i++)
+                {
+                    tasks.add(new EnumerateTask(i));
+                }
+                
+                EquityTally tally = new EquityTally(game, players.length);
+                for (EnumerateTask t : invokeAll(tasks))
+                {
+                    tally.add(t.join());
+                }
+                return tally;
+            }
+            
+            EquityTally tally = new EquityTally(game, players.length);
+            if (needed == 0)
+            {
+                tally.record(players, board);
+            }
+            else
+            {
+                this.deal(tally, board | 1L << deck[first], first + 1, needed - 1);
+            }
+            return tally;
+        }
+        
+        /**
+         * Deals every combination of the specified number of cards from the
+         * deck, starting at the specified position, onto a partial board.
+         */
+        private void deal(EquityTally tally, long b, int from, int left)
+        {
+            if (left == 0)
+            {
+                tally.record(players, b);
+                return;
+            }
+            
+            for (int i = from; i + left <= deck.length; i++)
+            {
+                this.deal(tally, b | 1L << deck[i], i + 1, left - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package pokerhands.equity;
+
+/**
+ * The share of the pot that each player can expect to win.
+ * A player's equity counts every pot they win outright, plus an equal share
+ * of every pot they split.
+ * @author jfritz
+ */
+public class EquityResult
+{
+    private final long showdowns;
+    private final long[] wins;
+    private final long[][] splits;
+    
+    EquityResult(long showdowns, long[] wins, long[][] splits)
+    {
+        this.showdowns = showdowns;
+        this.wins = wins.clone();
+        this.splits = new long[splits.length][];
+        for (int p = 0; p < splits.length; p++)
+        {
+            this.splits[p] = splits[p].clone();
+        }
+    }
+    
+    public int getNumPlayers()
+    {
+        return wins.length;
+    }
+    
+    /**
+     * Returns the number of boards that were played out.
+     * @return the number of boards that were played out.
+     */
+    public long getShowdowns()
+    {
+        return showdowns;
+    }
+    
+    /**
+     * Returns the number of boards on which the player won the whole pot.
+     * @param player the index of the player, in the order they were given
+     * @return the number of boards on which the player won the whole pot.
+     */
+    public long getWins(int player)
+    {
+        return wins[player];
+    }
+    
+    /**
+     * Returns the number of boards on which the player split the pot.
+     * @param player the index of the player, in the order they were given
+     * @return the number of boards on which the player split the pot.
+     */
+    public long getTies(int player)
+    {
+        long ties = 0;
+        for (long n : splits[player])
+        {
+            ties += n;
+        }
+        return ties;
+    }
+    
+    public double getWinPercentage(int player)
+    {
+        return percentage(wins[player]);
+    }
+    
+    public double getTiePercentage(int player)
+    {
+        return percentage(this.getTies(player));
+    }
+    
+    /**
+     * Returns the percentage of the pot that the player can expect to win.
+     * The equity of every player adds up to 100.
+     * @param player the index of the player, in the order they were given
+     * @return the percentage of the pot that the player can expect to win.
+     */
+    public double getEquity(int player)
+    {
+        double pots = wins[player];
+        for (int k = 2; k < splits[player].length; k++)
+        {
+            pots += (double)splits[player][k] / k;
+        }
+        return percentage(pots);
+    }
+    
+    private double percentage(double pots)
+    {
+        if (showdowns == 0) return 0;
+        return 100.0 * pots / showdowns;
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0; p < wins.length; p++)
+        {
+            sb.append(String.format("Player %d: win %.2f%%, tie %.2f%%, equity %.2f%%", 
+                    p + 1, this.getWinPercentage(p), this.getTiePercentage(p), this.getEquity(p)));
+            sb.append(System.getProperty("line.separator"));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package pokerhands.equity;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import pokerhands.Game;
+import pokerhands.Pokerhands.Type;
+import pokerhands.Showdown;
+import pokerhands.eval.HandScore;
+import pokerhands.metrics.EvaluateEvent;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * Counts the outcomes of a series of showdowns between the same players.
+ * Each thread keeps its own tally, and the tallies are added together once
+ * the threads are done.
+ * @author jfritz
+ */
+class EquityTally
+{
+    private final Game.Scorer scorer;
+    
+    private long showdowns = 0;
+    
+    //the best score of any hand, for the flight recorder
+    private int bestScore = -1;
+    
+    //the number of pots each player won outright
+    private final long[] wins;
+    
+    //splits[p][k] is the number of pots player p split k ways
+    private final long[][] splits;
+    
+    //the number of hands scored of each type, only counted while metrics
+    //are on
+    private final long[] types = new long[Type.values().length];
+    
+    //scratch space for the scores of the current showdown
+    private final int[] scores;
+    private final int[] winners;
+    
+    EquityTally(int numPlayers)
+    {
+        this(Game.HoldEm, numPlayers);
+    }
+    
+    EquityTally(Game game, int numPlayers)
+    {
+        scorer = game.newScorer();
+        wins = new long[numPlayers];
+        splits = new long[numPlayers][numPlayers + 1];
+        scores = new int[numPlayers];
+        winners = new int[numPlayers];
+    }
+    
+    /**
+     * Plays out a showdown between players holding the specified cards on 
+     * the specified board.
+     * @param players the hole cards of each player, as card masks
+     * @param board the five board cards, as a card mask
+     */
+    void record(long[] players, long board)
+    {
+        scorer.score(players, board, scores);
+        if (EvaluationMetrics.ENABLED)
+        {
+            for (int p = 0; p < players.length; p++)
+            {
+                types[HandScore.getType(scores[p]).ordinal()]++;
+            }
+        }
+        
+        int numWinners = Showdown.findWinners(scores, players.length, winners);
+        bestScore = Math.max(bestScore, scores[winners[0]]);
+        for (int w = 0; w < numWinners; w++)
+        {
+            if (numWinners == 1)
+            {
+                wins[winners[w]]++;
+            }
+            else
+            {
+                splits[winners[w]][numWinners]++;
+            }
+        }
+        showdowns++;
+    }
+    
+    /**
+     * Adds the outcomes counted by another tally to this one.
+     * @param t a tally of showdowns between the same players
+     */
+    void add(EquityTally t)
+    {
+        showdowns += t.showdowns;
+        bestScore = Math.max(bestScore, t.bestScore);
+        for (int k = 0; k < types.length; k++)
+        {
+            types[k] += t.types[k];
+        }
+        for (int p = 0; p < wins.length; p++)
+        {
+            wins[p] += t.wins[p];
+            for (int k = 0; k < splits[p].length; k++)
+            {
+                splits[p][k] += t.splits[p][k];
+            }
+        }
+    }
+    
+    /**
+     * Runs a calculation on a pool and returns the equity it tallied. This
+     * is where the metrics and flight recorder event of an equity
+     * calculation are recorded, once for the whole calculation, so that
+     * record does not have to read the clock for every showdown. The
+     * calculation is timed in the calculate phase, and its showdowns, hands
+     * and players are only counted in the deal, evaluate and compare phases,
+     * so it does not skew the latencies of single calls.
+     * @param pool the pool to run the calculation on
+     * @param task the calculation, which tallies every showdown it deals
+     * @return the equity of each player
+     */
+    static EquityResult calculate(ForkJoinPool pool, ForkJoinTask<EquityTally> task)
+    {
+        //the work runs on pool threads, so only its time is measured here,
+        //not what it allocates
+        long start = EvaluationMetrics.ENABLED ? System.nanoTime() : 0;
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        
+        EquityTally tally = pool.invoke(task);
+        
+        if (EvaluationMetrics.ENABLED)
+        {
+            long numHands = tally.showdowns * tally.wins.length;
+            EvaluationMetrics.CALCULATE.record(start, -1, numHands);
+            EvaluationMetrics.DEAL.count(tally.showdowns);
+            EvaluationMetrics.EVALUATE.count(numHands);
+            EvaluationMetrics.COMPARE.count(numHands);
+            EvaluationMetrics.addTypeCounts(tally.types);
+        }
+        if (event.shouldCommit())
+        {
+            event.handSize = tally.scorer.getGame().getNumHoleCards() + 5;
+            event.players = tally.wins.length;
+            event.setHands(tally.showdowns * tally.wins.length, tally.bestScore < 0 ? null : HandScore.getType(tally.bestScore));
+            event.commit();
+        }
+        return tally.toResult();
+    }
+    
+    EquityResult toResult()
+    {
+        return new EquityResult(showdowns, wins, splits);
+    }
+}
@@ -0,0 +1,424 @@
+package pokerhands.equity;
+
+import pokerhands.Card;
+import pokerhands.Pokerhands.Type;
+import pokerhands.eval.HandScore;
+import pokerhands.eval.HandState;
+import pokerhands.hands.Hand;
+
+/**
+ * Works out which of the unseen cards improve a hand of Texas hold'em on
+ * the flop or the turn, and how likely the hand is to improve.
+ *
+ * Each unseen card is tried by adding it to a running HandState, so every
+ * card costs a single table lookup. On the flop every turn and river are
+ * also dealt out, which is just over a thousand lookups, to give the exact
+ * chances of each type of hand by the river.
+ *
+ * If an opponent's hole cards are known, they are taken out of the unseen
+ * cards and every card is also checked against them.
+ * @author jfritz
+ */
+public class OutsAnalysis
+{
+    private static final Type[] TYPES = Type.values();
+    
+    private final long hole;
+    private final long board;
+    private final long opponent;
+    
+    //the cards that could still come
+    private final long unseen;
+    
+    private final int score;
+    private final int opponentScore;
+    
+    //the score of each hand with each unseen card added, by card index
+    private final int[] scores = new int[52];
+    private final int[] opponentScores = new int[52];
+    
+    //the unseen cards that make each type of hand better than the current one
+    private final long[] outs = new long[TYPES.length];
+    
+    //the number of turn and river runouts that end in each type of hand, and
+    //that end in a win or a split against the opponent
+    private long runouts = 0;
+    private final long[] runoutTypes = new long[TYPES.length];
+    private long runoutWins = 0;
+    private long runoutTies = 0;
+    
+    /**
+     * Analyses a hand with no known opponent.
+     * @param hole the player's two hole cards
+     * @param board the three or four board cards
+     */
+    public OutsAnalysis(Hand hole, Hand board)
+    {
+        this(hole.getMask(), board.getMask(), 0);
+    }
+    
+    /**
+     * Analyses a hand against an opponent whose cards are known.
+     * @param hole the player's two hole cards
+     * @param board the three or four board cards
+     * @param opponent the opponent's two hole cards
+     */
+    public OutsAnalysis(Hand hole, Hand board, Hand opponent)
+    {
+        this(hole.getMask(), board.getMask(), opponent.getMask());
+    }
+    
+    /**
+     * Analyses a hand, as card masks.
+     * @param hole the player's two hole cards
+     * @param board the three or four board cards
+     * @param opponent the opponent's two hole cards, or 0 if they are not
+     * known
+     */
+    public OutsAnalysis(long hole, long board, long opponent)
+    {
+        if (Long.bitCount(hole) != 2 || (opponent != 0 && Long.bitCount(opponent) != 2))
+        {
+            throw new IllegalArgumentException("Each player must hold exactly two cards");
+        }
+        int boardSize = Long.bitCount(board);
+        if (boardSize != 3 && boardSize != 4)
+        {
+            throw new IllegalArgumentException("Outs can only be counted on the flop or the turn");
+        }
+        if ((hole & board) != 0 || (hole & opponent) != 0 || (board & opponent) != 0)
+        {
+            throw new IllegalArgumentException("The same card cannot be dealt twice");
+        }
+        
+        this.hole = hole;
+        this.board = board;
+        this.opponent = opponent;
+        this.unseen = ~(hole | board | opponent) & (1L << 52) - 1;
+        
+        HandState state = new HandState();
+        state.addAll(hole | board);
+        HandState opponentState = new HandState();
+        if (opponent != 0) opponentState.addAll(opponent | board);
+        
+        score = state.getScore();
+        opponentScore = opponent == 0 ? 0 : opponentState.getScore();
+        int type = HandScore.getType(score).ordinal();
+        for (long m = unseen; m != 0; m &= m - 1)
+        {
+            int c = Long.numberOfTrailingZeros(m);
+            scores[c] = state.getScoreWith(c);
+            if (opponent != 0) opponentScores[c] = opponentState.getScoreWith(c);
+            
+            int t = HandScore.getType(scores[c]).ordinal();
+            if (t > type) outs[t] |= 1L << c;
+        }
+        
+        if (boardSize == 3)
+        {
+            this.dealRunouts(state, opponentState);
+        }
+    }
+    
+    /**
+     * Deals every turn and river, adding the turn to a copy of each state and
+     * trying each river with it.
+     */
+    private void dealRunouts(HandState state, HandState opponentState)
+    {
+        for (long turns = unseen; turns != 0; turns &= turns - 1)
+        {
+            int turn = Long.numberOfTrailingZeros(turns);
+            HandState s = new HandState(state);
+            s.add(turn);
+            HandState o = new HandState(opponentState);
+            if (opponent != 0) o.add(turn);
+            
+            //each pair of cards is dealt once, with the lower card as the turn
+            for (long rivers = turns & turns - 1; rivers != 0; rivers &= rivers - 1)
+            {
+                int river = Long.numberOfTrailingZeros(rivers);
+                int riverScore = s.getScoreWith(river);
+                runouts++;
+                runoutTypes[HandScore.getType(riverScore).ordinal()]++;
+                if (opponent != 0)
+                {
+                    int opponentRiverScore = o.getScoreWith(river);
+                    if (riverScore > opponentRiverScore)
+                    {
+                        runoutWins++;
+                    }
+                    else if (riverScore == opponentRiverScore)
+                    {
+                        runoutTies++;
+                    }
+                }
+            }
+        }
+    }
+    
+    public long getHole()
+    {
+        return hole;
+    }
+    
+    public long getBoard()
+    {
+        return board;
+    }
+    
+    /**
+     * Returns the cards that could still come.
+     * @return a card mask of every card not held by a player or on the board
+     */
+    public long getUnseen()
+    {
+        return unseen;
+    }
+    
+    public int getNumUnseen()
+    {
+        return Long.bitCount(unseen);
+    }
+    
+    /**
+     * Returns the score of the hand as it stands.
+     * @return the packed score of the hole cards and the board
+     */
+    public int getScore()
+    {
+        return score;
+    }
+    
+    public Type getType()
+    {
+        return HandScore.getType(score);
+    }
+    
+    /**
+     * Returns the score of the hand with one more card.
+     * @param card the index of an unseen card
+     * @return the packed score of the hand with the card added
+     */
+    public int getScoreWith(int card)
+    {
+        if (card < 0 || card >= 52 || (unseen & 1L << card) == 0)
+        {
+            throw new IllegalArgumentException("Card " + card + " is not a card or has already been seen");
+        }
+        return scores[card];
+    }
+    
+    /**
+     * Returns the cards that make the hand into a better type of hand than
+     * it is now.
+     * @return a card mask of the outs
+     */
+    public long getOuts()
+    {
+        long all = 0;
+        for (long m : outs)
+        {
+            all |= m;
+        }
+        return all;
+    }
+    
+    /**
+     * Returns the cards that make the hand into the specified type, if that
+     * is better than the type it is now.
+     * @param t a type of hand
+     * @return a card mask of the outs to that type, which is empty if the
+     * hand is already of that type or better
+     */
+    public long getOuts(Type t)
+    {
+        return outs[t.ordinal()];
+    }
+    
+    /**
+     * Returns the chance that the next card makes the hand into a better
+     * type of hand.
+     * @return a percentage from 0 to 100
+     */
+    public double getImprovePercentage()
+    {
+        return 100.0 * Long.bitCount(this.getOuts()) / this.getNumUnseen();
+    }
+    
+    /**
+     * Returns the chance that the next card makes the hand into the
+     * specified type, if that is better than the type it is now.
+     * @param t a type of hand
+     * @return a percentage from 0 to 100
+     */
+    public double getImprovePercentage(Type t)
+    {
+        return 100.0 * Long.bitCount(outs[t.ordinal()]) / this.getNumUnseen();
+    }
+    
+    /**
+     * Returns the cards that leave the player holding a better hand than the
+     * opponent.
+     * @return a card mask of the winning cards
+     */
+    public long getWinningCards()
+    {
+        this.checkOpponent();
+        long winning = 0;
+        for (long m = unseen; m != 0; m &= m - 1)
+        {
+            int c = Long.numberOfTrailingZeros(m);
+            if (scores[c] > opponentScores[c]) winning |= 1L << c;
+        }
+        return winning;
+    }
+    
+    /**
+     * Returns the cards that leave the player and the opponent holding hands
+     * of the same strength.
+     * @return a card mask of the cards that split the pot
+     */
+    public long getSplittingCards()
+    {
+        this.checkOpponent();
+        long splitting = 0;
+        for (long m = unseen; m != 0; m &= m - 1)
+        {
+            int c = Long.numberOfTrailingZeros(m);
+            if (scores[c] == opponentScores[c]) splitting |= 1L << c;
+        }
+        return splitting;
+    }
+    
+    /**
+     * Returns the cards that take the player from behind the opponent to
+     * ahead of them.
+     * @return a card mask of the cards that put the player ahead, which is
+     * empty if the player is not behind
+     */
+    public long getOutsAgainstOpponent()
+    {
+        this.checkOpponent();
+        if (opponentScore <= score) return 0;
+        return this.getWinningCards();
+    }
+    
+    /**
+     * Returns the chance that the next card leaves the player ahead of the
+     * opponent.
+     * @return a percentage from 0 to 100
+     */
+    public double getWinPercentage()
+    {
+        return 100.0 * Long.bitCount(this.getWinningCards()) / this.getNumUnseen();
+    }
+    
+    /**
+     * Returns true if the analysis was made on the flop, so that the chances
+     * by the river are known.
+     * @return true if the board holds three cards
+     */
+    public boolean hasRunouts()
+    {
+        return runouts > 0;
+    }
+    
+    /**
+     * Returns the chance that the hand ends up as the specified type once the
+     * turn and the river have been dealt. Only known on the flop.
+     * @param t a type of hand
+     * @return a percentage from 0 to 100
+     */
+    public double getRiverPercentage(Type t)
+    {
+        this.checkRunouts();
+        return 100.0 * runoutTypes[t.ordinal()] / runouts;
+    }
+    
+    /**
+     * Returns the chance that the player holds the better hand once the
+     * turn and the river have been dealt. Only known on the flop.
+     * @return a percentage from 0 to 100
+     */
+    public double getRiverWinPercentage()
+    {
+        this.checkOpponent();
+        this.checkRunouts();
+        return 100.0 * runoutWins / runouts;
+    }
+    
+    /**
+     * Returns the chance that the pot is split once the turn and the river
+     * have been dealt. Only known on the flop.
+     * @return a percentage from 0 to 100
+     */
+    public double getRiverTiePercentage()
+    {
+        this.checkOpponent();
+        this.checkRunouts();
+        return 100.0 * runoutTies / runouts;
+    }
+    
+    private void checkOpponent()
+    {
+        if (opponent == 0)
+        {
+            throw new IllegalStateException("No opponent was given");
+        }
+    }
+    
+    private void checkRunouts()
+    {
+        if (runouts == 0)
+        {
+            throw new IllegalStateException("Chances by the river are only known on the flop");
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Holding %s, %d outs in %d unseen cards (%.2f%%)%n",
+                this.getType(), Long.bitCount(this.getOuts()), this.getNumUnseen(), this.getImprovePercentage()));
+        for (int t = TYPES.length - 1; t >= 0; t--)
+        {
+            if (outs[t] == 0) continue;
+            sb.append(String.format("  %s with %s (%.2f%%)%n", TYPES[t], describe(outs[t]), this.getImprovePercentage(TYPES[t])));
+        }
+        if (opponent != 0)
+        {
+            sb.append(String.format("Ahead of the opponent after %d cards (%.2f%%)%n",
+                    Long.bitCount(this.getWinningCards()), this.getWinPercentage()));
+        }
+        if (this.hasRunouts())
+        {
+            sb.append("By the river:");
+            for (int t = TYPES.length - 1; t >= 0; t--)
+            {
+                if (runoutTypes[t] == 0) continue;
+                sb.append(String.format("%n  %s: %.2f%%", TYPES[t], this.getRiverPercentage(TYPES[t])));
+            }
+            if (opponent != 0)
+            {
+                sb.append(String.format("%n  win %.2f%%, tie %.2f%%", this.getRiverWinPercentage(), this.getRiverTiePercentage()));
+            }
+        }
+        return sb.toString().trim();
+    }
+    
+    private static String describe(long cards)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (long m = cards; m != 0; m &= m - 1)
+        {
+            if (sb.length() > 0)
+            {
+                sb.append(", ");
+            }
+            sb.append(Card.fromIndex(Long.numberOfTrailingZeros(m)));
+        }
+        return sb.toString();
+    }
+}
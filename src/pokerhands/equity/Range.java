@@ -0,0 +1,369 @@
+package pokerhands.equity;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A set of two card starting hands, such as "AKs, TT+, A5s-A2s, KQo".
+ * There are 1,326 distinct pairs of hole cards, called combos, and a range
+ * holds one bit for each of them.
+ *
+ * Ranges are parsed from a comma separated list of:
+ * <ul>
+ * <li>pairs, such as TT, with TT+ meaning TT up to AA and TT-77 meaning
+ * every pair from TT down to 77</li>
+ * <li>two ranks, such as AK, optionally followed by s for suited combos or
+ * o for offsuit combos. AKs covers the four suited combos, AKo the twelve
+ * offsuit ones and AK all sixteen. A5s+ raises the second rank up to one
+ * below the first, so it is A5s to AKs, and A5s-A2s covers A5s down to
+ * A2s</li>
+ * <li>single combos, such as AhKh</li>
+ * </ul>
+ * Ranks are written AKQJT98765432 and suits cdhs.
+ * @author jfritz
+ */
+public final class Range
+{
+    /**
+     * The number of distinct pairs of hole cards.
+     */
+    public static final int NUM_COMBOS = 52 * 51 / 2;
+    
+    private static final String RANKS = "23456789TJQKA";
+    private static final String SUITS = "cdhs";
+    
+    //the two cards of each combo, as a card mask
+    private static final long[] COMBO_MASKS = new long[NUM_COMBOS];
+    
+    private static final Pattern COMBO = Pattern.compile("([2-9TJQKA])([cdhs])([2-9TJQKA])([cdhs])");
+    private static final Pattern HANDS = Pattern.compile("([2-9TJQKA])([2-9TJQKA])([so]?)(?:(\\+)|-([2-9TJQKA])([2-9TJQKA])([so]?))?");
+    
+    static
+    {
+        for (int c2 = 1; c2 < 52; c2++)
+        {
+            for (int c1 = 0; c1 < c2; c1++)
+            {
+                COMBO_MASKS[getCombo(c1, c2)] = 1L << c1 | 1L << c2;
+            }
+        }
+    }
+    
+    //one bit per combo
+    private final long[] bits;
+    
+    private Range(long[] bits)
+    {
+        this.bits = bits;
+    }
+    
+    /**
+     * Returns the range holding every combo.
+     * @return every combo
+     */
+    public static Range all()
+    {
+        Range r = new Range(new long[(NUM_COMBOS + 63) / 64]);
+        for (int c = 0; c < NUM_COMBOS; c++)
+        {
+            r.set(c);
+        }
+        return r;
+    }
+    
+    /**
+     * Parses a range.
+     * @param range a comma separated list of hands, as described above
+     * @return the combos in the range
+     */
+    public static Range parse(String range)
+    {
+        Range r = new Range(new long[(NUM_COMBOS + 63) / 64]);
+        for (String token : range.split(","))
+        {
+            String hand = token.trim();
+            if (hand.isEmpty()) continue;
+            
+            Matcher m = COMBO.matcher(hand);
+            if (m.matches())
+            {
+                int c1 = card(m.group(1), m.group(2));
+                int c2 = card(m.group(3), m.group(4));
+                if (c1 == c2)
+                {
+                    throw new IllegalArgumentException("A hand cannot hold the same card twice: " + hand);
+                }
+                r.set(getCombo(c1, c2));
+                continue;
+            }
+            
+            m = HANDS.matcher(hand);
+            if (!m.matches())
+            {
+                throw new IllegalArgumentException("Not a hand or range of hands: " + hand);
+            }
+            r.addHands(hand, m);
+        }
+        return r;
+    }
+    
+    /**
+     * Returns the combo made from two cards.
+     * @param c1 the index of one card
+     * @param c2 the index of the other card
+     * @return a combo from 0 to NUM_COMBOS - 1
+     */
+    public static int getCombo(int c1, int c2)
+    {
+        int lo = Math.min(c1, c2);
+        int hi = Math.max(c1, c2);
+        return hi * (hi - 1) / 2 + lo;
+    }
+    
+    /**
+     * Returns the two cards of a combo.
+     * @param combo a combo from 0 to NUM_COMBOS - 1
+     * @return a mask with one bit set at the index of each card
+     */
+    public static long getComboMask(int combo)
+    {
+        return COMBO_MASKS[combo];
+    }
+    
+    public boolean contains(int combo)
+    {
+        return (bits[combo >>> 6] & 1L << combo) != 0;
+    }
+    
+    /**
+     * Returns the number of combos in the range.
+     * @return the number of combos in the range
+     */
+    public int size()
+    {
+        int size = 0;
+        for (long word : bits)
+        {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+    
+    public boolean isEmpty()
+    {
+        return this.size() == 0;
+    }
+    
+    /**
+     * Returns the combos of this range that hold none of the specified
+     * cards. Cards that are known to be elsewhere, on the board or in
+     * another player's hand, block every combo that uses them.
+     * @param blockers a mask of the cards that cannot be held
+     * @return a new range without the blocked combos
+     */
+    public Range without(long blockers)
+    {
+        Range r = new Range(bits.clone());
+        for (int c = 0; c < NUM_COMBOS; c++)
+        {
+            if ((COMBO_MASKS[c] & blockers) != 0) r.clear(c);
+        }
+        return r;
+    }
+    
+    /**
+     * Returns the combos that are in either range.
+     * @param r another range
+     * @return a new range holding the combos of both
+     */
+    public Range union(Range r)
+    {
+        long[] union = bits.clone();
+        for (int i = 0; i < union.length; i++)
+        {
+            union[i] |= r.bits[i];
+        }
+        return new Range(union);
+    }
+    
+    /**
+     * Returns every combo in the range, lowest first.
+     * @return the combos in the range
+     */
+    public int[] getCombos()
+    {
+        int[] combos = new int[this.size()];
+        int n = 0;
+        for (int i = 0; i < bits.length; i++)
+        {
+            for (long word = bits[i]; word != 0; word &= word - 1)
+            {
+                combos[n++] = i << 6 | Long.numberOfTrailingZeros(word);
+            }
+        }
+        return combos;
+    }
+    
+    /**
+     * Returns the two cards of every combo in the range, in the same order
+     * as getCombos.
+     * @return a card mask for each combo in the range
+     */
+    public long[] getComboMasks()
+    {
+        int[] combos = this.getCombos();
+        long[] masks = new long[combos.length];
+        for (int i = 0; i < combos.length; i++)
+        {
+            masks[i] = COMBO_MASKS[combos[i]];
+        }
+        return masks;
+    }
+    
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof Range && Arrays.equals(bits, ((Range)o).bits);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(bits);
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int combo : this.getCombos())
+        {
+            if (sb.length() > 0)
+            {
+                sb.append(", ");
+            }
+            //write the higher rank first
+            long mask = COMBO_MASKS[combo];
+            int c1 = 63 - Long.numberOfLeadingZeros(mask);
+            int c2 = Long.numberOfTrailingZeros(mask);
+            if (c1 % 13 < c2 % 13)
+            {
+                int swap = c1;
+                c1 = c2;
+                c2 = swap;
+            }
+            sb.append(RANKS.charAt(c1 % 13)).append(SUITS.charAt(c1 / 13));
+            sb.append(RANKS.charAt(c2 % 13)).append(SUITS.charAt(c2 / 13));
+        }
+        return sb.toString();
+    }
+    
+    private void set(int combo)
+    {
+        bits[combo >>> 6] |= 1L << combo;
+    }
+    
+    private void clear(int combo)
+    {
+        bits[combo >>> 6] &= ~(1L << combo);
+    }
+    
+    /**
+     * Adds the combos of a hand such as AKs, TT+ or A5s-A2s.
+     */
+    private void addHands(String hand, Matcher m)
+    {
+        int high = RANKS.indexOf(m.group(1));
+        int low = RANKS.indexOf(m.group(2));
+        String suits = m.group(3);
+        boolean plus = m.group(4) != null;
+        
+        if (high == low)
+        {
+            if (!suits.isEmpty())
+            {
+                throw new IllegalArgumentException("A pair cannot be suited or offsuit: " + hand);
+            }
+            
+            int to = high;
+            if (plus)
+            {
+                to = 12;
+            }
+            else if (m.group(5) != null)
+            {
+                //the second half of a range of pairs must be a pair too
+                to = RANKS.indexOf(m.group(5));
+                if (to != RANKS.indexOf(m.group(6)) || !m.group(7).isEmpty())
+                {
+                    throw new IllegalArgumentException("A range of pairs must end in a pair: " + hand);
+                }
+            }
+            for (int r = Math.min(high, to); r <= Math.max(high, to); r++)
+            {
+                this.addCombos(r, r, "");
+            }
+            return;
+        }
+        
+        if (low > high)
+        {
+            int swap = low;
+            low = high;
+            high = swap;
+        }
+        
+        int to = low;
+        if (plus)
+        {
+            to = high - 1;
+        }
+        else if (m.group(5) != null)
+        {
+            //the first rank stays put while the second one runs
+            int otherHigh = RANKS.indexOf(m.group(5));
+            int otherLow = RANKS.indexOf(m.group(6));
+            if (otherLow > otherHigh)
+            {
+                int swap = otherLow;
+                otherLow = otherHigh;
+                otherHigh = swap;
+            }
+            if (otherHigh != high || otherLow == otherHigh || !m.group(7).equals(suits))
+            {
+                throw new IllegalArgumentException("Both ends of a range must share their first rank and suitedness: " + hand);
+            }
+            to = otherLow;
+        }
+        for (int r = Math.min(low, to); r <= Math.max(low, to); r++)
+        {
+            this.addCombos(high, r, suits);
+        }
+    }
+    
+    /**
+     * Adds every combo of two ranks, keeping only suited or offsuit combos
+     * if asked to.
+     */
+    private void addCombos(int rank1, int rank2, String suits)
+    {
+        for (int s1 = 0; s1 < 4; s1++)
+        {
+            for (int s2 = 0; s2 < 4; s2++)
+            {
+                int c1 = 13 * s1 + rank1;
+                int c2 = 13 * s2 + rank2;
+                if (c1 == c2) continue;
+                if (suits.equals("s") && s1 != s2) continue;
+                if (suits.equals("o") && s1 == s2) continue;
+                this.set(getCombo(c1, c2));
+            }
+        }
+    }
+    
+    private static int card(String rank, String suit)
+    {
+        return 13 * SUITS.indexOf(suit) + RANKS.indexOf(rank);
+    }
+}
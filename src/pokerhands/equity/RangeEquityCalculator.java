@@ -0,0 +1,310 @@
+package pokerhands.equity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import pokerhands.hands.Hand;
+
+/**
+ * Works out how often each of several ranges of hands wins against the
+ * others in a hand of Texas hold'em.
+ * Combos that use a board card or a dead card are removed from each range
+ * up front. Combos from different ranges that share a card are never dealt
+ * together, so every combination of combos that can be dealt together
+ * counts the same.
+ * @author jfritz
+ */
+public class RangeEquityCalculator
+{
+    //tasks with more trials than this are split in two and run in parallel
+    private static final long TRIALS_PER_TASK = 16384;
+    
+    //the number of times in a row that dealing a set of combos may run into
+    //a shared card before the ranges are taken to be impossible to deal
+    private static final int MAX_REJECTIONS = 1000000;
+    
+    //the card masks of the combos left in each range
+    private final long[][] combos;
+    
+    private final long board;
+    private final int boardSize;
+    
+    //the cards that are not on the board or dead, some of which will be
+    //held by the players
+    private final int[] deck;
+    
+    private final ForkJoinPool pool;
+    
+    /**
+     * Creates a calculator that runs on the common fork/join pool.
+     * @param ranges the range of each player
+     * @param board the board cards dealt so far, or null if there are none
+     * @param dead cards that cannot be dealt, or null if there are none
+     */
+    public RangeEquityCalculator(List<Range> ranges, Hand board, Hand dead)
+    {
+        this(ranges, board, dead, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates a calculator that runs on the specified pool.
+     * @param ranges the range of each player
+     * @param board the board cards dealt so far, or null if there are none
+     * @param dead cards that cannot be dealt, or null if there are none
+     * @param pool the pool to run on
+     */
+    public RangeEquityCalculator(List<Range> ranges, Hand board, Hand dead, ForkJoinPool pool)
+    {
+        if (ranges == null || ranges.size() < 2)
+        {
+            throw new IllegalArgumentException("At least two players are needed");
+        }
+        
+        this.board = board == null ? 0 : board.getMask();
+        this.boardSize = Long.bitCount(this.board);
+        if (this.boardSize > 5)
+        {
+            throw new IllegalArgumentException("The board cannot hold more than five cards");
+        }
+        
+        long deadCards = dead == null ? 0 : dead.getMask();
+        if ((this.board & deadCards) != 0)
+        {
+            throw new IllegalArgumentException("The same card cannot be dealt twice");
+        }
+        long blockers = this.board | deadCards;
+        
+        this.combos = new long[ranges.size()][];
+        for (int p = 0; p < combos.length; p++)
+        {
+            combos[p] = ranges.get(p).without(blockers).getComboMasks();
+            if (combos[p].length == 0)
+            {
+                throw new IllegalArgumentException("Player " + (p + 1) + " has no hands left once the board and dead cards are removed");
+            }
+        }
+        
+        int numLeft = 52 - Long.bitCount(blockers);
+        if (numLeft < 5 - this.boardSize + 2 * combos.length)
+        {
+            throw new IllegalArgumentException("There are not enough cards left to deal every player in and finish the board");
+        }
+        
+        this.deck = new int[numLeft];
+        int i = 0;
+        for (int c = 0; c < 52; c++)
+        {
+            if ((blockers & 1L << c) == 0) deck[i++] = c;
+        }
+        
+        this.pool = pool;
+    }
+    
+    /**
+     * Estimates each range's equity by dealing a random combo from each range
+     * and a random rest of the board the specified number of times.
+     * @param trials the number of showdowns to deal
+     * @return the equity of each range
+     */
+    public EquityResult sample(long trials)
+    {
+        return this.sample(trials, new SplittableRandom());
+    }
+    
+    /**
+     * Estimates each range's equity by dealing a random combo from each range
+     * and a random rest of the board the specified number of times. The same
+     * seed always deals the same showdowns, however many threads the pool
+     * has.
+     * @param trials the number of showdowns to deal
+     * @param seed the seed for the random number generator
+     * @return the equity of each range
+     */
+    public EquityResult sample(long trials, long seed)
+    {
+        return this.sample(trials, new SplittableRandom(seed));
+    }
+    
+    private EquityResult sample(long trials, SplittableRandom random)
+    {
+        return EquityTally.calculate(pool, new SampleTask(trials, random));
+    }
+    
+    /**
+     * Works out each range's exact equity by playing every combination of
+     * combos that can be dealt together against every possible rest of the
+     * board. The work grows with the product of the range sizes, so this is
+     * best suited to narrow ranges or to boards that are already dealt.
+     * @return the equity of each range
+     */
+    public EquityResult enumerate()
+    {
+        List<EnumerateTask> tasks = new ArrayList<>();
+        for (long first : combos[0])
+        {
+            tasks.add(new EnumerateTask(first));
+        }
+        
+        return EquityTally.calculate(pool, new RecursiveTask<EquityTally>() {
+            @Override
+            protected EquityTally compute()
+            {
+                EquityTally tally = new EquityTally(combos.length);
+                for (EnumerateTask t : invokeAll(tasks))
+                {
+                    tally.add(t.join());
+                }
+                return tally;
+            }
+        });
+    }
+    
+    /**
+     * Deals a number of random showdowns, splitting the work with other
+     * threads when there is enough of it.
+     */
+    private class SampleTask extends RecursiveTask<EquityTally>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final long trials;
+        private final SplittableRandom random;
+        
+        SampleTask(long trials, SplittableRandom random)
+        {
+            this.trials = trials;
+            this.random = random;
+        }
+        
+        @Override
+        protected EquityTally compute()
+        {
+            if (trials > TRIALS_PER_TASK)
+            {
+                SampleTask half = new SampleTask(trials / 2, random.split());
+                half.fork();
+                EquityTally tally = new SampleTask(trials - trials / 2, random).compute();
+                tally.add(half.join());
+                return tally;
+            }
+            
+            EquityTally tally = new EquityTally(combos.length);
+            long[] hands = new long[combos.length];
+            int[] cards = deck.clone();
+            int needed = 5 - boardSize;
+            for (long t = 0; t < trials; t++)
+            {
+                long used = this.dealHands(hands);
+                
+                //a partial shuffle deals the board, passing over the cards
+                //that the players hold
+                long b = board;
+                int dealt = 0;
+                for (int i = 0; dealt < needed; i++)
+                {
+                    int j = i + random.nextInt(cards.length - i);
+                    int c = cards[j];
+                    cards[j] = cards[i];
+                    cards[i] = c;
+                    if ((used & 1L << c) == 0)
+                    {
+                        b |= 1L << c;
+                        dealt++;
+                    }
+                }
+                tally.record(hands, b);
+            }
+            return tally;
+        }
+        
+        /**
+         * Picks a random combo from each range, starting over whenever two
+         * of them share a card so that every set of combos that can be dealt
+         * together is equally likely.
+         * @return the cards held by the players
+         */
+        private long dealHands(long[] hands)
+        {
+            for (int rejections = 0; rejections < MAX_REJECTIONS; rejections++)
+            {
+                long used = 0;
+                int p = 0;
+                while (p < hands.length)
+                {
+                    long[] range = combos[p];
+                    long hand = range[random.nextInt(range.length)];
+                    if ((used & hand) != 0) break;
+                    hands[p++] = hand;
+                    used |= hand;
+                }
+                if (p == hands.length) return used;
+            }
+            throw new IllegalStateException("The ranges almost never leave a set of hands that can be dealt together");
+        }
+    }
+    
+    /**
+     * Plays every combo of the first range against every combination of
+     * combos of the other ranges that it can be dealt with, on every possible
+     * rest of the board.
+     */
+    private class EnumerateTask extends RecursiveTask<EquityTally>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final long first;
+        
+        EnumerateTask(long first)
+        {
+            this.first = first;
+        }
+        
+        @Override
+        protected EquityTally compute()
+        {
+            EquityTally tally = new EquityTally(combos.length);
+            long[] hands = new long[combos.length];
+            hands[0] = first;
+            this.dealHands(tally, hands, 1, first);
+            return tally;
+        }
+        
+        private void dealHands(EquityTally tally, long[] hands, int player, long used)
+        {
+            if (player == hands.length)
+            {
+                this.dealBoards(tally, hands, board, 0, 5 - boardSize, used);
+                return;
+            }
+            
+            for (long hand : combos[player])
+            {
+                if ((used & hand) != 0) continue;
+                hands[player] = hand;
+                this.dealHands(tally, hands, player + 1, used | hand);
+            }
+        }
+        
+        /**
+         * Deals every combination of the specified number of cards that the
+         * players do not hold, starting at the specified position in the
+         * deck.
+         */
+        private void dealBoards(EquityTally tally, long[] hands, long b, int from, int left, long used)
+        {
+            if (left == 0)
+            {
+                tally.record(hands, b);
+                return;
+            }
+            
+            for (int i = from; i + left <= deck.length; i++)
+            {
+                if ((used & 1L << deck[i]) != 0) continue;
+                this.dealBoards(tally, hands, b | 1L << deck[i], i + 1, left - 1, used);
+            }
+        }
+    }
+}
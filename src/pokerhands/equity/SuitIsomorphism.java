@@ -0,0 +1,476 @@
+package pokerhands.equity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups hands that differ only by a relabelling of the suits, such as
+ * AhKh on Qh7c2d and AsKs on Qs7d2h, and numbers the groups densely.
+ * A hand is dealt in rounds, for example two hole cards and then a three
+ * card flop, and each round is given as its own card mask. Cards may only
+ * trade places with cards of the same round, so AhKh on a heart flop is a
+ * different hand from Ah on a flop holding Kh.
+ *
+ * The 22,100 flops fall into 1,755 groups, and the 1,326 pairs of hole
+ * cards into 169. Every group has an index from 0 to size() - 1, a
+ * canonical hand that stands for it, and a weight, which is the number of
+ * hands in the group. Summing something over the canonical hands of every
+ * group, each multiplied by its weight, gives the same total as summing it
+ * over every hand.
+ *
+ * A group is indexed by the card counts of each suit in each round, its
+ * configuration, and then by the ranks each suit holds. Suits with the same
+ * counts are interchangeable, so their ranks are numbered as a multiset.
+ * @author jfritz
+ */
+public final class SuitIsomorphism
+{
+    //C(n, k) for n and k up to 13
+    private static final int[][] CHOOSE = new int[14][14];
+    
+    static
+    {
+        for (int n = 0; n < 14; n++)
+        {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= n; k++)
+            {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+            }
+        }
+    }
+    
+    private final int[] roundSizes;
+    
+    //every configuration, with the configuration of each suit in 16 bits
+    //and the largest first, sorted
+    private final long[] configs;
+    
+    //the index of the first group of each configuration, and the number of
+    //groups in all of them
+    private final long[] offsets;
+    private final long size;
+    
+    /**
+     * Creates an isomorphism for hands dealt in the specified rounds.
+     * @param roundSizes the number of cards in each round, for example 2 and 3
+     * for hole cards and a flop, or just 3 for a flop on its own
+     */
+    public SuitIsomorphism(int... roundSizes)
+    {
+        if (roundSizes.length == 0 || roundSizes.length > 4)
+        {
+            throw new IllegalArgumentException("A hand must be dealt in one to four rounds");
+        }
+        int total = 0;
+        for (int n : roundSizes)
+        {
+            if (n < 1 || n > 13)
+            {
+                throw new IllegalArgumentException("A round must hold one to thirteen cards");
+            }
+            total += n;
+        }
+        if (total > 52)
+        {
+            throw new IllegalArgumentException("A hand cannot hold more than 52 cards");
+        }
+        this.roundSizes = roundSizes.clone();
+        
+        List<Long> found = new ArrayList<>();
+        this.findConfigs(found, new int[4], 0, roundSizes.clone(), 0xFFFF);
+        configs = new long[found.size()];
+        for (int i = 0; i < configs.length; i++)
+        {
+            configs[i] = found.get(i);
+        }
+        Arrays.sort(configs);
+        
+        offsets = new long[configs.length];
+        long n = 0;
+        for (int i = 0; i < configs.length; i++)
+        {
+            offsets[i] = n;
+            n += this.countGroups(configs[i]);
+        }
+        size = n;
+    }
+    
+    /**
+     * Returns the number of groups.
+     * @return the number of hands that differ other than by their suits
+     */
+    public long size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns the index of the group that a hand belongs to.
+     * @param rounds the cards of each round, as card masks
+     * @return an index from 0 to size() - 1
+     */
+    public long getIndex(long... rounds)
+    {
+        int[] suitConfigs = new int[4];
+        int[] suitIndices = new int[4];
+        this.describe(rounds, suitConfigs, suitIndices);
+        int[] order = sortSuits(suitConfigs, suitIndices);
+        
+        long config = 0;
+        for (int i = 0; i < 4; i++)
+        {
+            config = config << 16 | suitConfigs[order[i]];
+        }
+        int c = Arrays.binarySearch(configs, config);
+        
+        //suits with the same counts make up a group, whose ranks are numbered
+        //as a multiset and combined with the other groups in mixed radix
+        long index = 0;
+        for (int i = 0; i < 4; )
+        {
+            int j = i;
+            while (j < 4 && suitConfigs[order[j]] == suitConfigs[order[i]]) j++;
+            
+            int k = j - i;
+            long rank = 0;
+            for (int g = 0; g < k; g++)
+            {
+                rank += choose(suitIndices[order[i + g]] + k - 1 - g, k - g);
+            }
+            index = index * choose(this.countSuitIndices(suitConfigs[order[i]]) + k - 1, k) + rank;
+            i = j;
+        }
+        return offsets[c] + index;
+    }
+    
+    /**
+     * Returns the canonical hand of a group. Suits are given out in order,
+     * clubs first, to the suit with the most cards in the first round.
+     * @param index an index from 0 to size() - 1
+     * @return the cards of each round, as card masks
+     */
+    public long[] getHand(long index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IllegalArgumentException("There is no group " + index);
+        }
+        
+        int c = Arrays.binarySearch(offsets, index);
+        if (c < 0) c = -c - 2;
+        long config = configs[c];
+        long rest = index - offsets[c];
+        
+        int[] suitConfigs = new int[4];
+        for (int s = 0; s < 4; s++)
+        {
+            suitConfigs[s] = (int)(config >>> 16 * (3 - s)) & 0xFFFF;
+        }
+        
+        //undo the mixed radix, last group first
+        int[] suitIndices = new int[4];
+        for (int j = 4; j > 0; )
+        {
+            int i = j;
+            while (i > 0 && suitConfigs[i - 1] == suitConfigs[j - 1]) i--;
+            
+            int k = j - i;
+            long radix = choose(this.countSuitIndices(suitConfigs[i]) + k - 1, k);
+            long rank = rest % radix;
+            rest /= radix;
+            for (int g = 0; g < k; g++)
+            {
+                int b = largestBelow(rank, k - g);
+                rank -= choose(b, k - g);
+                suitIndices[i + g] = b - (k - 1 - g);
+            }
+            j = i;
+        }
+        
+        long[] rounds = new long[roundSizes.length];
+        for (int s = 0; s < 4; s++)
+        {
+            this.placeSuit(rounds, s, suitConfigs[s], suitIndices[s]);
+        }
+        return rounds;
+    }
+    
+    /**
+     * Returns the canonical hand of the group that a hand belongs to, which
+     * is the same as getHand(getIndex(rounds)).
+     * @param rounds the cards of each round, as card masks
+     * @return the cards of each round of the canonical hand
+     */
+    public long[] getCanonical(long... rounds)
+    {
+        int[] suitConfigs = new int[4];
+        int[] suitIndices = new int[4];
+        this.describe(rounds, suitConfigs, suitIndices);
+        int[] order = sortSuits(suitConfigs, suitIndices);
+        
+        long[] canonical = new long[roundSizes.length];
+        for (int s = 0; s < 4; s++)
+        {
+            for (int r = 0; r < rounds.length; r++)
+            {
+                canonical[r] |= (rounds[r] >>> 13 * order[s] & 0x1FFF) << 13 * s;
+            }
+        }
+        return canonical;
+    }
+    
+    /**
+     * Returns the number of hands in the group that a hand belongs to.
+     * This is 24, the number of ways to relabel the suits, divided by the
+     * number of relabellings that leave the hand as it is.
+     * @param rounds the cards of each round, as card masks
+     * @return a weight from 1 to 24
+     */
+    public int getWeight(long... rounds)
+    {
+        int[] suitConfigs = new int[4];
+        int[] suitIndices = new int[4];
+        this.describe(rounds, suitConfigs, suitIndices);
+        int[] order = sortSuits(suitConfigs, suitIndices);
+        
+        //suits holding exactly the same ranks in every round can be swapped
+        //without changing the hand
+        int weight = 24;
+        for (int i = 0; i < 4; )
+        {
+            int j = i;
+            while (j < 4 && suitConfigs[order[j]] == suitConfigs[order[i]]
+                    && suitIndices[order[j]] == suitIndices[order[i]]) j++;
+            for (int m = 2; m <= j - i; m++)
+            {
+                weight /= m;
+            }
+            i = j;
+        }
+        return weight;
+    }
+    
+    /**
+     * Works out the configuration of each suit, its card counts in each
+     * round with the first round in the highest four bits, and the index of
+     * the ranks it holds among all ranks that fit that configuration.
+     */
+    private void describe(long[] rounds, int[] suitConfigs, int[] suitIndices)
+    {
+        if (rounds.length != roundSizes.length)
+        {
+            throw new IllegalArgumentException("Expected " + roundSizes.length + " rounds of cards, not " + rounds.length);
+        }
+        long used = 0;
+        for (int r = 0; r < rounds.length; r++)
+        {
+            if (Long.bitCount(rounds[r]) != roundSizes[r] || (rounds[r] & used) != 0 || rounds[r] >>> 52 != 0)
+            {
+                throw new IllegalArgumentException("Round " + (r + 1) + " must hold " + roundSizes[r] + " cards that are not in another round");
+            }
+            used |= rounds[r];
+        }
+        
+        for (int s = 0; s < 4; s++)
+        {
+            int config = 0;
+            int index = 0;
+            int radix = 1;
+            int taken = 0;
+            for (int r = 0; r < rounds.length; r++)
+            {
+                int ranks = (int)(rounds[r] >>> 13 * s) & 0x1FFF;
+                int count = Integer.bitCount(ranks);
+                config |= count << 4 * (3 - r);
+                
+                //number the ranks among those not taken by earlier rounds
+                int colex = 0;
+                int k = 1;
+                for (int m = ranks; m != 0; m &= m - 1, k++)
+                {
+                    int rank = Integer.numberOfTrailingZeros(m);
+                    int position = rank - Integer.bitCount(taken & (1 << rank) - 1);
+                    colex += choose(position, k);
+                }
+                index += radix * colex;
+                radix *= CHOOSE[13 - Integer.bitCount(taken)][count];
+                taken |= ranks;
+            }
+            suitConfigs[s] = config;
+            suitIndices[s] = index;
+        }
+    }
+    
+    /**
+     * Sets the ranks of a suit from its configuration and index, undoing
+     * describe.
+     */
+    private void placeSuit(long[] rounds, int suit, int config, int index)
+    {
+        int taken = 0;
+        for (int r = 0; r < rounds.length; r++)
+        {
+            int count = config >>> 4 * (3 - r) & 0xF;
+            int free = 13 - Integer.bitCount(taken);
+            int colex = index % CHOOSE[free][count];
+            index /= CHOOSE[free][count];
+            
+            int ranks = 0;
+            for (int k = count; k > 0; k--)
+            {
+                int position = largestBelow(colex, k);
+                colex -= choose(position, k);
+                
+                //find the rank at that position among the free ranks
+                int rank = -1;
+                for (int p = -1; p < position; )
+                {
+                    rank++;
+                    if ((taken & 1 << rank) == 0) p++;
+                }
+                ranks |= 1 << rank;
+            }
+            rounds[r] |= (long)ranks << 13 * suit;
+            taken |= ranks;
+        }
+    }
+    
+    /**
+     * Returns the suits in canonical order: by configuration, the largest
+     * first, then by index, the largest first.
+     */
+    private static int[] sortSuits(int[] suitConfigs, int[] suitIndices)
+    {
+        int[] order = {0, 1, 2, 3};
+        for (int i = 1; i < 4; i++)
+        {
+            for (int j = i; j > 0; j--)
+            {
+                int a = order[j - 1];
+                int b = order[j];
+                boolean before = suitConfigs[b] > suitConfigs[a]
+                        || suitConfigs[b] == suitConfigs[a] && suitIndices[b] > suitIndices[a];
+                if (!before) break;
+                order[j - 1] = b;
+                order[j] = a;
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Finds every way to share out the cards left in each round between the
+     * suits from the specified one on, giving no suit a larger
+     * configuration than the one before it.
+     */
+    private void findConfigs(List<Long> found, int[] suitConfigs, int suit, int[] left, int largest)
+    {
+        if (suit == 4)
+        {
+            for (int n : left)
+            {
+                if (n != 0) return;
+            }
+            long config = 0;
+            for (int s = 0; s < 4; s++)
+            {
+                config = config << 16 | suitConfigs[s];
+            }
+            found.add(config);
+            return;
+        }
+        this.findSuitConfigs(found, suitConfigs, suit, left, largest, 0, 0, 13);
+    }
+    
+    private void findSuitConfigs(List<Long> found, int[] suitConfigs, int suit, int[] left, int largest, int round, int config, int free)
+    {
+        if (round == roundSizes.length)
+        {
+            if (config > largest) return;
+            suitConfigs[suit] = config;
+            this.findConfigs(found, suitConfigs, suit + 1, left, config);
+            return;
+        }
+        
+        for (int n = 0; n <= Math.min(left[round], free); n++)
+        {
+            left[round] -= n;
+            this.findSuitConfigs(found, suitConfigs, suit, left, largest, round + 1, config | n << 4 * (3 - round), free - n);
+            left[round] += n;
+        }
+    }
+    
+    private long countGroups(long config)
+    {
+        long count = 1;
+        for (int i = 0; i < 4; )
+        {
+            int suitConfig = (int)(config >>> 16 * (3 - i)) & 0xFFFF;
+            int j = i;
+            while (j < 4 && ((int)(config >>> 16 * (3 - j)) & 0xFFFF) == suitConfig) j++;
+            
+            int k = j - i;
+            count *= choose(this.countSuitIndices(suitConfig) + k - 1, k);
+            i = j;
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the number of ways a single suit can hold the ranks of a
+     * configuration.
+     */
+    private int countSuitIndices(int config)
+    {
+        int count = 1;
+        int free = 13;
+        for (int r = 0; r < roundSizes.length; r++)
+        {
+            int n = config >>> 4 * (3 - r) & 0xF;
+            count *= CHOOSE[free][n];
+            free -= n;
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the largest b such that C(b, k) is no more than the specified
+     * value.
+     */
+    private static int largestBelow(long value, int k)
+    {
+        int lo = k - 1;
+        int hi = k;
+        while (choose(hi, k) <= value)
+        {
+            lo = hi;
+            hi *= 2;
+        }
+        while (hi - lo > 1)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (choose(mid, k) <= value)
+            {
+                lo = mid;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    
+    private static long choose(long n, int k)
+    {
+        if (k < 0 || n < k) return 0;
+        long c = 1;
+        for (int i = 1; i <= k; i++)
+        {
+            c = c * (n - k + i) / i;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,292 @@
+package pokerhands.eval;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import pokerhands.metrics.EvaluateEvent;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * Evaluates many hands in one call.
+ * Hands are passed either as 64-bit card masks, or as the indices of their
+ * seven cards stored one after the other, and are scored exactly as
+ * HandEvaluator scores them. No objects are created per hand, so batches
+ * produced by a simulator can be scored without building Hand or Card
+ * objects first.
+ * @author jfritz
+ */
+public final class BatchEvaluator
+{
+    /**
+     * The number of card indices each hand takes up in an index batch.
+     */
+    public static final int CARDS_PER_HAND = 7;
+    
+    //tasks with more hands than this are split in two and run in parallel
+    private static final int HANDS_PER_TASK = 8192;
+    
+    private BatchEvaluator()
+    {
+    }
+    
+    /**
+     * Scores a batch of hands on the calling thread.
+     * @param masks the hands to score, each a card mask of five to seven
+     * cards
+     * @param scores the array to fill with the score of each hand
+     * @throws IllegalArgumentException if a hand is not a card mask of five
+     * to seven cards
+     */
+    public static void evaluate(long[] masks, int[] scores)
+    {
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        checkScores(masks.length, scores);
+        evaluate(masks, scores, 0, masks.length);
+        record(start, bytes, event, masks, scores, masks.length);
+    }
+    
+    /**
+     * Scores a batch of seven card hands on the calling thread.
+     * @param cards the indices of the cards of each hand, seven per hand
+     * @param scores the array to fill with the score of each hand
+     * @throws IllegalArgumentException if a hand holds an index that is not
+     * a card, or the same card twice
+     */
+    public static void evaluate(int[] cards, int[] scores)
+    {
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        int numHands = countHands(cards);
+        checkScores(numHands, scores);
+        evaluate(cards, scores, 0, numHands);
+        record(start, bytes, event, null, scores, numHands);
+    }
+    
+    /**
+     * Scores a batch of hands, splitting the work across the threads of the
+     * common fork/join pool.
+     * @param masks the hands to score, each a card mask of five to seven
+     * cards
+     * @param scores the array to fill with the score of each hand
+     * @throws IllegalArgumentException if a hand is not a card mask of five
+     * to seven cards
+     */
+    public static void parallelEvaluate(long[] masks, int[] scores)
+    {
+        parallelEvaluate(masks, scores, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Scores a batch of hands, splitting the work across the threads of the
+     * specified pool.
+     * @param masks the hands to score, each a card mask of five to seven
+     * cards
+     * @param scores the array to fill with the score of each hand
+     * @param pool the pool to run on
+     * @throws IllegalArgumentException if a hand is not a card mask of five
+     * to seven cards
+     */
+    public static void parallelEvaluate(long[] masks, int[] scores, ForkJoinPool pool)
+    {
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        checkScores(masks.length, scores);
+        pool.invoke(new EvaluateTask(masks, null, scores, 0, masks.length));
+        record(start, bytes, event, masks, scores, masks.length);
+    }
+    
+    /**
+     * Scores a batch of seven card hands, splitting the work across the
+     * threads of the common fork/join pool.
+     * @param cards the indices of the cards of each hand, seven per hand
+     * @param scores the array to fill with the score of each hand
+     * @throws IllegalArgumentException if a hand holds an index that is not
+     * a card, or the same card twice
+     */
+    public static void parallelEvaluate(int[] cards, int[] scores)
+    {
+        parallelEvaluate(cards, scores, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Scores a batch of seven card hands, splitting the work across the
+     * threads of the specified pool.
+     * @param cards the indices of the cards of each hand, seven per hand
+     * @param scores the array to fill with the score of each hand
+     * @param pool the pool to run on
+     * @throws IllegalArgumentException if a hand holds an index that is not
+     * a card, or the same card twice
+     */
+    public static void parallelEvaluate(int[] cards, int[] scores, ForkJoinPool pool)
+    {
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        int numHands = countHands(cards);
+        checkScores(numHands, scores);
+        pool.invoke(new EvaluateTask(null, cards, scores, 0, numHands));
+        record(start, bytes, event, null, scores, numHands);
+    }
+    
+    private static void evaluate(long[] masks, int[] scores, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            long mask = masks[i];
+            
+            //a mask of the wrong size or with bits above the last card would
+            //read a meaningless slot of the tables
+            int numCards = Long.bitCount(mask);
+            if (numCards < 5 || numCards > 7 || mask >>> 52 != 0)
+            {
+                throw new IllegalArgumentException("Hand " + i + " is not a card mask of five to seven cards: " + Long.toHexString(mask));
+            }
+            scores[i] = HandEvaluator.evaluate(mask);
+        }
+    }
+    
+    private static void evaluate(int[] cards, int[] scores, int from, int to)
+    {
+        for (int i = from, c = from * CARDS_PER_HAND; i < to; i++, c += CARDS_PER_HAND)
+        {
+            int c1 = cards[c];
+            int c2 = cards[c + 1];
+            int c3 = cards[c + 2];
+            int c4 = cards[c + 3];
+            int c5 = cards[c + 4];
+            int c6 = cards[c + 5];
+            int c7 = cards[c + 6];
+            
+            //a card is an index when neither it nor 51 minus it is negative,
+            //so one test of the sign bit checks all seven, and the mask only
+            //has seven bits if no card is there twice
+            int range = c1 | 51 - c1 | c2 | 51 - c2 | c3 | 51 - c3 | c4 | 51 - c4
+                    | c5 | 51 - c5 | c6 | 51 - c6 | c7 | 51 - c7;
+            long mask = 1L << c1 | 1L << c2 | 1L << c3 | 1L << c4 | 1L << c5 | 1L << c6 | 1L << c7;
+            if (range < 0 || Long.bitCount(mask) != CARDS_PER_HAND)
+            {
+                throw new IllegalArgumentException("Hand " + i + " is not seven different card indices: "
+                        + Arrays.toString(Arrays.copyOfRange(cards, c, c + CARDS_PER_HAND)));
+            }
+            scores[i] = HandEvaluator.evaluate(mask);
+        }
+    }
+    
+    private static int countHands(int[] cards)
+    {
+        if (cards.length % CARDS_PER_HAND != 0)
+        {
+            throw new IllegalArgumentException("A batch of card indices must hold " + CARDS_PER_HAND + " cards per hand");
+        }
+        return cards.length / CARDS_PER_HAND;
+    }
+    
+    /**
+     * Records a whole batch as one call, counting every hand in it. Only the
+     * calling thread's allocation is counted, not that of a pool's threads.
+     * The masks are null for a batch of card indices.
+     */
+    private static void record(long start, long bytes, EvaluateEvent event, long[] masks, int[] scores, int numHands)
+    {
+        if (EvaluationMetrics.ENABLED)
+        {
+            EvaluationMetrics.EVALUATE.record(start, bytes, numHands);
+            EvaluationMetrics.countTypes(scores, numHands);
+        }
+        if (event.shouldCommit())
+        {
+            event.handSize = masks == null ? CARDS_PER_HAND : handSize(masks);
+            event.setScores(scores, numHands);
+            event.commit();
+        }
+    }
+    
+    /**
+     * Returns the number of cards in every hand of a batch, or 0 if they are
+     * not all the same size.
+     */
+    private static int handSize(long[] masks)
+    {
+        int size = masks.length == 0 ? 0 : Long.bitCount(masks[0]);
+        for (long m : masks)
+        {
+            if (Long.bitCount(m) != size) return 0;
+        }
+        return size;
+    }
+    
+    private static void checkScores(int numHands, int[] scores)
+    {
+        if (scores.length < numHands)
+        {
+            throw new IllegalArgumentException("There is only room for " + scores.length + " of " + numHands + " scores");
+        }
+    }
+    
+    /**
+     * Scores a range of a batch, splitting it with other threads when it is
+     * large enough. Exactly one of masks and cards is set.
+     */
+    private static class EvaluateTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final long[] masks;
+        private final int[] cards;
+        private final int[] scores;
+        private final int from;
+        private final int to;
+        
+        EvaluateTask(long[] masks, int[] cards, int[] scores, int from, int to)
+        {
+            this.masks = masks;
+            this.cards = cards;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (to - from > HANDS_PER_TASK)
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(masks, cards, scores, from, mid),
+                        new EvaluateTask(masks, cards, scores, mid, to));
+            }
+            else if (masks != null)
+            {
+                evaluate(masks, scores, from, to);
+            }
+            else
+            {
+                evaluate(cards, scores, from, to);
+            }
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package pokerhands.eval;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import pokerhands.Pokerhands.Type;
+import pokerhands.hands.Hand;
+import pokerhands.metrics.EvaluateEvent;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * A lookup table based poker hand evaluator.
+ * Any set of five, six or seven cards is reduced to a single packed score
+ * (see HandScore) in a handful of memory reads. A larger score always beats
+ * a smaller one, and equal scores split the pot.
+ *
+ * Cards are identified by their index, as returned by Card.getIndex().
+ * A set of cards can also be passed as a 64-bit mask with one bit set per
+ * card index.
+ * @author jfritz
+ */
+public final class HandEvaluator
+{
+    /**
+     * Each rank is assigned a key such that the sum of the keys of any five,
+     * six or seven cards is unique to the ranks in that set.
+     */
+    private static final int[] RANK_KEYS =
+    {
+        1, 5, 24, 112, 521, 2247, 9244, 30823, 103066, 250154, 667453,
+        1526359, 3453520
+    };
+    
+    //key sums are hashed into a table with 2^17 slots. the keys are first
+    //split into 2^14 buckets, and each bucket gets its own displacement that
+    //keeps its keys clear of the slots used by every other bucket
+    private static final int TABLE_BITS = 17;
+    private static final int BUCKET_BITS = 14;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    private static final int BUCKET_HASH = 0x9E3779B1;
+    private static final int SLOT_HASH = 0x85EBCA6B;
+    
+    private static final int RANK_MASK = 0x1FFF;
+    
+    //score of the best hand that can be made from a single suit, indexed
+    //by the 13-bit rank mask of the cards in that suit
+    private static final int[] FLUSH_TABLE = new int[RANK_MASK + 1];
+    
+    //score of the best hand that can be made from a set of ranks when no
+    //flush is possible, indexed by the hashed rank key sum
+    private static final int[] RANK_TABLE = new int[TABLE_MASK + 1];
+    
+    //displacement applied to the hashed key sums of each bucket
+    private static final byte[] DISPLACEMENTS = new byte[1 << BUCKET_BITS];
+    
+    //sum of the rank keys of every card in a 13-bit rank mask
+    private static final int[] KEY_SUMS = new int[RANK_MASK + 1];
+    
+    //the parameters the tables were built with. a table file built with
+    //different parameters cannot be used
+    static final int[] TABLE_PARAMETERS = {TABLE_BITS, BUCKET_BITS, BUCKET_HASH, SLOT_HASH};
+    
+    /**
+     * The system property naming the file that the lookup tables are loaded
+     * from. Building the tables takes a noticeable fraction of a short run,
+     * so TableFile can write them out ahead of time. If the file is missing
+     * or does not match, the tables are built in memory instead.
+     */
+    public static final String TABLE_FILE_PROPERTY = "pokerhands.tables";
+    
+    /**
+     * The file that the lookup tables are loaded from when the system 
+     * property is not set, relative to the working directory.
+     */
+    public static final String DEFAULT_TABLE_FILE = "pokerhands.tables";
+    
+    static
+    {
+        buildKeySums();
+        
+        String file = System.getProperty(TABLE_FILE_PROPERTY, DEFAULT_TABLE_FILE);
+        if (file.isEmpty() || !TableFile.read(Paths.get(file), FLUSH_TABLE, RANK_TABLE, DISPLACEMENTS))
+        {
+            buildTables();
+        }
+    }
+    
+    private HandEvaluator()
+    {
+    }
+    
+    /**
+     * Returns the strength of the best five card hand that can be made from
+     * the cards in the specified hand.
+     * @param h a hand of five, six or seven cards
+     * @return the packed score of the hand
+     */
+    public static int evaluate(Hand h)
+    {
+        if (h == null || h.getNumCards() < 5 || h.getNumCards() > 7)
+        {
+            throw new IllegalArgumentException("Only hands of five to seven cards can be evaluated");
+        }
+        
+        long start = 0, bytes = 0;
+        if (EvaluationMetrics.ENABLED)
+        {
+            start = System.nanoTime();
+            bytes = EvaluationMetrics.getAllocatedBytes();
+        }
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        
+        int score = evaluate(h.getMask());
+        
+        if (EvaluationMetrics.ENABLED)
+        {
+            EvaluationMetrics.EVALUATE.record(start, bytes, 1);
+            EvaluationMetrics.countType(score);
+        }
+        if (event.shouldCommit())
+        {
+            event.handSize = h.getNumCards();
+            event.hands = 1;
+            event.category = HandScore.getType(score).name();
+            event.commit();
+        }
+        return score;
+    }
+    
+    /**
+     * Returns the strength of the best five card hand that can be made from
+     * the cards in the specified mask.
+     * The mask must contain between five and seven cards.
+     * @param cardMask a mask with one bit set per card index
+     * @return the packed score of the hand
+     */
+    public static int evaluate(long cardMask)
+    {
+        int clubs = (int)cardMask & RANK_MASK;
+        int diamonds = (int)(cardMask >>> 13) & RANK_MASK;
+        int hearts = (int)(cardMask >>> 26) & RANK_MASK;
+        int spades = (int)(cardMask >>> 39) & RANK_MASK;
+        
+        //with seven cards or less, a flush rules out both a full house and
+        //four of a kind, so the flush table always has the best hand
+        if (Integer.bitCount(clubs) >= 5) return FLUSH_TABLE[clubs];
+        if (Integer.bitCount(diamonds) >= 5) return FLUSH_TABLE[diamonds];
+        if (Integer.bitCount(hearts) >= 5) return FLUSH_TABLE[hearts];
+        if (Integer.bitCount(spades) >= 5) return FLUSH_TABLE[spades];
+        
+        int key = KEY_SUMS[clubs] + KEY_SUMS[diamonds] + KEY_SUMS[hearts] + KEY_SUMS[spades];
+        return lookupRanks(key);
+    }
+    
+    public static int evaluate(int c1, int c2, int c3, int c4, int c5)
+    {
+        return evaluate(1L << c1 | 1L << c2 | 1L << c3 | 1L << c4 | 1L << c5);
+    }
+    
+    public static int evaluate(int c1, int c2, int c3, int c4, int c5, int c6)
+    {
+        return evaluate(1L << c1 | 1L << c2 | 1L << c3 | 1L << c4 | 1L << c5 | 1L << c6);
+    }
+    
+    public static int evaluate(int c1, int c2, int c3, int c4, int c5, int c6, int c7)
+    {
+        return evaluate(1L << c1 | 1L << c2 | 1L << c3 | 1L << c4 | 1L << c5 | 1L << c6 | 1L << c7);
+    }
+    
+    /**
+     * Returns the key of the specified rank, from 0 (a deuce) to 12 (an ace).
+     */
+    static int rankKey(int rank)
+    {
+        return RANK_KEYS[rank];
+    }
+    
+    /**
+     * Returns the score of five to seven cards that do not make a flush, 
+     * given the sum of the keys of their ranks.
+     */
+    static int lookupRanks(int keySum)
+    {
+        return RANK_TABLE[slot(keySum, DISPLACEMENTS[bucket(keySum)])];
+    }
+    
+    /**
+     * Returns the score of the best hand in a suit that holds five or more 
+     * cards, given the rank mask of that suit.
+     */
+    static int lookupFlush(int suitMask)
+    {
+        return FLUSH_TABLE[suitMask];
+    }
+    
+    /**
+     * Builds the tables and writes them to the specified file.
+     */
+    static void writeTables(Path file) throws IOException
+    {
+        //build the tables again, in case they were read from a file
+        buildTables();
+        TableFile.write(file, FLUSH_TABLE, RANK_TABLE, DISPLACEMENTS);
+    }
+    
+    private static void buildKeySums()
+    {
+        for (int mask = 0; mask <= RANK_MASK; mask++)
+        {
+            for (int r = 0; r < 13; r++)
+            {
+                if ((mask & 1 << r) != 0) KEY_SUMS[mask] += RANK_KEYS[r];
+            }
+        }
+    }
+    
+    private static void buildTables()
+    {
+        for (int mask = 0; mask <= RANK_MASK; mask++)
+        {
+            if (Integer.bitCount(mask) >= 5)
+            {
+                FLUSH_TABLE[mask] = scoreSuit(mask);
+            }
+        }
+        
+        //there are 73,775 combinations of five to seven ranks
+        int[] keys = new int[73775];
+        int[] scores = new int[keys.length];
+        collectRankScores(new int[13], 0, 0, 0, keys, scores, 0);
+        placeRankScores(keys, scores);
+    }
+    
+    /**
+     * Records the key and score of every rank combination of five to seven
+     * cards.
+     */
+    private static int collectRankScores(int[] counts, int rank, int numCards, int key, int[] keys, int[] scores, int count)
+    {
+        if (rank == 13)
+        {
+            if (numCards >= 5)
+            {
+                keys[count] = key;
+                scores[count] = scoreRanks(counts);
+                count++;
+            }
+            return count;
+        }
+        
+        for (int c = 0; c <= 4 && numCards + c <= 7; c++)
+        {
+            counts[rank] = c;
+            count = collectRankScores(counts, rank + 1, numCards + c, key + c * RANK_KEYS[rank], keys, scores, count);
+        }
+        counts[rank] = 0;
+        return count;
+    }
+    
+    /**
+     * Stores every rank score in the rank table, choosing a displacement
+     * for each bucket of keys so that no two keys share a slot.
+     * The largest buckets are placed first, while the table is still empty.
+     */
+    private static void placeRankScores(int[] keys, int[] scores)
+    {
+        int numBuckets = 1 << BUCKET_BITS;
+        
+        //sort the keys by bucket
+        int[] start = new int[numBuckets + 1];
+        for (int key : keys)
+        {
+            start[bucket(key) + 1]++;
+        }
+        for (int b = 0; b < numBuckets; b++)
+        {
+            start[b + 1] += start[b];
+        }
+        int[] next = Arrays.copyOf(start, numBuckets);
+        int[] sorted = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+        {
+            sorted[next[bucket(keys[i])]++] = i;
+        }
+        
+        //order the buckets from largest to smallest
+        long[] order = new long[numBuckets];
+        for (int b = 0; b < numBuckets; b++)
+        {
+            order[b] = (long)(start[b + 1] - start[b]) << 32 | b;
+        }
+        Arrays.sort(order);
+        
+        boolean[] used = new boolean[TABLE_MASK + 1];
+        for (int o = numBuckets - 1; o >= 0; o--)
+        {
+            int b = (int)order[o];
+            int d = 0;
+            while (!fits(keys, sorted, start[b], start[b + 1], d, used))
+            {
+                d++;
+            }
+            if (d > Byte.MAX_VALUE)
+            {
+                throw new IllegalStateException("Unable to place rank bucket " + b);
+            }
+            
+            DISPLACEMENTS[b] = (byte)d;
+            for (int i = start[b]; i < start[b + 1]; i++)
+            {
+                int s = slot(keys[sorted[i]], d);
+                used[s] = true;
+                RANK_TABLE[s] = scores[sorted[i]];
+            }
+        }
+    }
+    
+    /**
+     * Returns true if every key in a bucket lands in its own free slot when
+     * the bucket is given the specified displacement.
+     */
+    private static boolean fits(int[] keys, int[] sorted, int from, int to, int d, boolean[] used)
+    {
+        for (int i = from; i < to; i++)
+        {
+            int s = slot(keys[sorted[i]], d);
+            if (used[s]) return false;
+            for (int j = from; j < i; j++)
+            {
+                if (slot(keys[sorted[j]], d) == s) return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int bucket(int key)
+    {
+        return (key * BUCKET_HASH) >>> (32 - BUCKET_BITS);
+    }
+    
+    private static int slot(int key, int displacement)
+    {
+        return ((key * SLOT_HASH) >>> (32 - TABLE_BITS)) + displacement & TABLE_MASK;
+    }
+    
+    /**
+     * Scores the best hand that can be made from five or more cards of the
+     * same suit.
+     */
+    private static int scoreSuit(int mask)
+    {
+        int top = Straights.getTop(mask);
+        if (top == 12) return score(Type.RoyalFlush, 1 << top, 1, 0, 0);
+        if (top >= 0) return score(Type.StraightFlush, 1 << top, 1, 0, 0);
+        return score(Type.Flush, mask, 5, 0, 0);
+    }
+    
+    /**
+     * Scores the best hand that can be made from cards with the specified
+     * number of each rank, ignoring suits.
+     */
+    private static int scoreRanks(int[] counts)
+    {
+        int mask = 0;
+        int quad = -1;
+        int trip = -1;
+        int pair = -1;
+        int pair2 = -1;
+        
+        //work down from the aces so that the highest sets are found first
+        for (int r = 12; r >= 0; r--)
+        {
+            if (counts[r] == 0) continue;
+            
+            mask |= 1 << r;
+            if (counts[r] == 4 && quad < 0)
+            {
+                quad = r;
+            }
+            else if (counts[r] >= 3 && trip < 0)
+            {
+                trip = r;
+            }
+            else if (counts[r] >= 2)
+            {
+                //a second set of trips can only be used as a pair
+                if (pair < 0) pair = r;
+                else if (pair2 < 0) pair2 = r;
+            }
+        }
+        
+        if (quad >= 0)
+        {
+            return score(Type.FourOfAKind, 1 << quad, 1, mask & ~(1 << quad), 1);
+        }
+        if (trip >= 0 && pair >= 0)
+        {
+            return score(Type.FullHouse, 1 << trip, 1, 1 << pair, 1);
+        }
+        
+        int top = Straights.getTop(mask);
+        if (top >= 0)
+        {
+            return score(Type.Straight, 1 << top, 1, 0, 0);
+        }
+        if (trip >= 0)
+        {
+            return score(Type.ThreeOfAKind, 1 << trip, 1, mask & ~(1 << trip), 2);
+        }
+        if (pair2 >= 0)
+        {
+            int pairs = 1 << pair | 1 << pair2;
+            return score(Type.TwoPair, pairs, 2, mask & ~pairs, 1);
+        }
+        if (pair >= 0)
+        {
+            return score(Type.OnePair, 1 << pair, 1, mask & ~(1 << pair), 3);
+        }
+        return score(Type.HighCard, mask, 5, 0, 0);
+    }
+    
+    /**
+     * Packs a type of hand and the ranks that decide ties between hands of
+     * that type into a score.
+     * The highest numRanks ranks of the mask come first, followed by the
+     * highest numKickers ranks of the kicker mask.
+     */
+    private static int score(Type t, int mask, int numRanks, int kickerMask, int numKickers)
+    {
+        int[] ranks = new int[HandScore.NUM_RANKS];
+        int i = 0;
+        for (; i < numRanks; i++)
+        {
+            ranks[i] = 31 - Integer.numberOfLeadingZeros(mask);
+            mask &= ~(1 << ranks[i]);
+        }
+        for (; i < numRanks + numKickers; i++)
+        {
+            ranks[i] = 31 - Integer.numberOfLeadingZeros(kickerMask);
+            kickerMask &= ~(1 << ranks[i]);
+        }
+        return HandScore.pack(t, ranks, i);
+    }
+}
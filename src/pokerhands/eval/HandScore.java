@@ -0,0 +1,77 @@
+package pokerhands.eval;
+
+import pokerhands.Pokerhands.Type;
+
+/**
+ * Packs the value of a poker hand into a single int.
+ * The type of hand occupies the high bits, numbered as in Type.getScore(),
+ * and is followed by the ranks that decide ties between two hands of the
+ * same type, most significant first. Four bits are used per rank.
+ *
+ * Because of this layout, comparing two scores as plain ints gives the same
+ * result as comparing the hands that they came from. For example, a pair of
+ * kings with A-9-4 kickers packs as 0x1CD830 and beats a pair of kings with
+ * Q-J-10 kickers, which packs as 0x1CBA90.
+ * @author jfritz
+ */
+public final class HandScore
+{
+    /**
+     * The maximum number of ranks that a score holds.
+     */
+    public static final int NUM_RANKS = 5;
+    
+    private static final int RANK_BITS = 4;
+    
+    private static final int TYPE_SHIFT = NUM_RANKS * RANK_BITS;
+    
+    private static final Type[] TYPES = Type.values();
+    
+    private HandScore()
+    {
+    }
+    
+    /**
+     * Packs a type of hand and its deciding ranks into a score.
+     * Ranks run from 0 (a deuce) to 12 (an ace).
+     * @param t the type of hand
+     * @param ranks the ranks that decide ties, most significant first
+     * @param numRanks the number of ranks to use, up to NUM_RANKS
+     * @return the packed score
+     */
+    public static int pack(Type t, int[] ranks, int numRanks)
+    {
+        int score = t.getScore();
+        for (int i = 0; i < NUM_RANKS; i++)
+        {
+            //ranks are stored off by one so that an unused rank is never
+            //mistaken for a deuce
+            score <<= RANK_BITS;
+            if (i < numRanks) score |= ranks[i] + 1;
+        }
+        return score;
+    }
+    
+    /**
+     * Returns the type of hand that a score was packed from.
+     * @param score a packed score
+     * @return the type of hand
+     */
+    public static Type getType(int score)
+    {
+        return TYPES[score >>> TYPE_SHIFT];
+    }
+    
+    /**
+     * Returns one of the deciding ranks of a score.
+     * @param score a packed score
+     * @param position the position of the rank, 0 being the most significant
+     * @return the rank, from 0 (a deuce) to 12 (an ace), or -1 if the score
+     * does not use that position
+     */
+    public static int getRank(int score, int position)
+    {
+        int shift = (NUM_RANKS - 1 - position) * RANK_BITS;
+        return (score >>> shift & ((1 << RANK_BITS) - 1)) - 1;
+    }
+}
@@ -0,0 +1,160 @@
+package pokerhands.eval;
+
+import pokerhands.Card;
+
+/**
+ * A hand that is scored as its cards arrive, one street at a time.
+ * Each card added folds its rank key and suit into running totals, so the
+ * score after the flop, the turn or the river is a single table lookup
+ * rather than an evaluation of every card from scratch. Scores are the same
+ * as those returned by HandEvaluator.
+ *
+ * A state is not safe to share between threads. Copy it instead; a copy is
+ * only a handful of fields.
+ * @author jfritz
+ */
+public final class HandState
+{
+    private static final int RANK_MASK = 0x1FFF;
+    
+    //adding three to a suit's count sets the top bit of its four bits once
+    //the suit holds five cards or more
+    private static final int FLUSH_OFFSETS = 0x3333;
+    private static final int FLUSH_BITS = 0x8888;
+    
+    //one bit per card, at the card's index
+    private long cards = 0;
+    
+    private int numCards = 0;
+    
+    //the sum of the rank keys of every card
+    private int keySum = 0;
+    
+    //the number of cards in each suit, four bits per suit
+    private int suitCounts = 0;
+    
+    /**
+     * Creates a state with no cards.
+     */
+    public HandState()
+    {
+    }
+    
+    /**
+     * Creates a copy of the specified state.
+     * @param s the state to copy
+     */
+    public HandState(HandState s)
+    {
+        this.cards = s.cards;
+        this.numCards = s.numCards;
+        this.keySum = s.keySum;
+        this.suitCounts = s.suitCounts;
+    }
+    
+    /**
+     * Adds a card to the hand.
+     * @param card the index of the card, as returned by Card.getIndex()
+     */
+    public void add(int card)
+    {
+        if (card < 0 || card >= 52 || (cards & 1L << card) != 0)
+        {
+            throw new IllegalArgumentException("Card " + card + " is not a card or is already in the hand");
+        }
+        if (numCards == 7)
+        {
+            throw new IllegalStateException("A hand cannot hold more than seven cards");
+        }
+        
+        cards |= 1L << card;
+        numCards++;
+        keySum += HandEvaluator.rankKey(card % 13);
+        suitCounts += 1 << 4 * (card / 13);
+    }
+    
+    public void add(Card c)
+    {
+        this.add(c.getIndex());
+    }
+    
+    /**
+     * Adds every card in a card mask to the hand.
+     * @param cardMask a mask with one bit set per card index
+     */
+    public void addAll(long cardMask)
+    {
+        for (long m = cardMask; m != 0; m &= m - 1)
+        {
+            this.add(Long.numberOfTrailingZeros(m));
+        }
+    }
+    
+    /**
+     * Removes every card from the hand.
+     */
+    public void clear()
+    {
+        cards = 0;
+        numCards = 0;
+        keySum = 0;
+        suitCounts = 0;
+    }
+    
+    public long getCards()
+    {
+        return cards;
+    }
+    
+    public int getNumCards()
+    {
+        return numCards;
+    }
+    
+    /**
+     * Returns the score of the best five cards in the hand.
+     * @return the packed score of the hand
+     */
+    public int getScore()
+    {
+        if (numCards < 5)
+        {
+            throw new IllegalStateException("Only hands of five to seven cards can be scored");
+        }
+        return score(cards, keySum, suitCounts);
+    }
+    
+    /**
+     * Returns the score the hand would have with one more card, without 
+     * adding the card. This is how each possible next card is tried in turn.
+     * @param card the index of a card that is not in the hand
+     * @return the packed score of the hand with the card added
+     * @throws IllegalArgumentException if the card is not a card or is
+     * already in the hand
+     */
+    public int getScoreWith(int card)
+    {
+        if (card < 0 || card >= 52 || (cards & 1L << card) != 0)
+        {
+            throw new IllegalArgumentException("Card " + card + " is not a card or is already in the hand");
+        }
+        if (numCards < 4 || numCards == 7)
+        {
+            throw new IllegalStateException("Only hands of four to six cards can be scored with another card");
+        }
+        return score(cards | 1L << card, keySum + HandEvaluator.rankKey(card % 13), 
+                suitCounts + (1 << 4 * (card / 13)));
+    }
+    
+    private static int score(long cards, int keySum, int suitCounts)
+    {
+        int flush = suitCounts + FLUSH_OFFSETS & FLUSH_BITS;
+        if (flush != 0)
+        {
+            //with seven cards or less only one suit can hold a flush
+            int suit = Integer.numberOfTrailingZeros(flush) >>> 2;
+            return HandEvaluator.lookupFlush((int)(cards >>> 13 * suit) & RANK_MASK);
+        }
+        return HandEvaluator.lookupRanks(keySum);
+    }
+}
@@ -0,0 +1,148 @@
+package pokerhands.eval;
+
+/**
+ * Scores Omaha hands, which must be made from exactly two of the player's
+ * hole cards and exactly three of the board cards.
+ *
+ * An evaluator is built for one board. Every three card subset of the board
+ * is worked out once, with the sum of its rank keys and, when its cards
+ * share a suit, that suit and its ranks. Each player's hand then only has to
+ * add the rank keys of each pair of hole cards to those of each triple and
+ * look the total up, so a four card hand on a five card board costs 60
+ * table lookups and a five card hand 100, with nothing sorted or counted.
+ * Scores are the same as those returned by HandEvaluator for the five cards
+ * that are used.
+ *
+ * An evaluator only holds the board and what was worked out from it, so one
+ * can be shared by every player and every thread. Simulations that move on
+ * to a new board can reset the evaluator with setBoard instead of building
+ * another, as long as no other thread is using it.
+ * @author jfritz
+ */
+public final class OmahaEvaluator
+{
+    //the most triples a board can hold, which is five cards choose three
+    private static final int MAX_TRIPLES = 10;
+    
+    private long board;
+    private int numTriples;
+    
+    //the sum of the rank keys of each triple of board cards
+    private final int[] tripleKeys = new int[MAX_TRIPLES];
+    
+    //the suit of each triple whose cards all share one, or -1, and the ranks
+    //of those cards
+    private final int[] tripleSuits = new int[MAX_TRIPLES];
+    private final int[] tripleRanks = new int[MAX_TRIPLES];
+    
+    /**
+     * Works out every triple of the specified board.
+     * @param board the board cards, as a card mask of three to five cards
+     */
+    public OmahaEvaluator(long board)
+    {
+        this.setBoard(board);
+    }
+    
+    /**
+     * Moves the evaluator to another board, working out its triples in
+     * place. Nothing is allocated, so this is cheaper than building a new
+     * evaluator, but it must not be called while another thread is
+     * evaluating hands with this one.
+     * @param board the board cards, as a card mask of three to five cards
+     */
+    public void setBoard(long board)
+    {
+        int numCards = Long.bitCount(board);
+        if (numCards < 3 || numCards > 5)
+        {
+            throw new IllegalArgumentException("An Omaha board must hold three to five cards, not " + numCards);
+        }
+        this.board = board;
+        
+        int t = 0;
+        for (long mi = board; mi != 0; mi &= mi - 1)
+        {
+            int a = Long.numberOfTrailingZeros(mi);
+            for (long mj = mi & mi - 1; mj != 0; mj &= mj - 1)
+            {
+                int b = Long.numberOfTrailingZeros(mj);
+                for (long mk = mj & mj - 1; mk != 0; mk &= mk - 1)
+                {
+                    int c = Long.numberOfTrailingZeros(mk);
+                    tripleKeys[t] = HandEvaluator.rankKey(a % 13) + HandEvaluator.rankKey(b % 13) + HandEvaluator.rankKey(c % 13);
+                    boolean suited = a / 13 == b / 13 && b / 13 == c / 13;
+                    tripleSuits[t] = suited ? a / 13 : -1;
+                    tripleRanks[t] = 1 << a % 13 | 1 << b % 13 | 1 << c % 13;
+                    t++;
+                }
+            }
+        }
+        numTriples = t;
+    }
+    
+    /**
+     * Returns the score of the best Omaha hand that can be made from the
+     * specified hole cards and board.
+     * @param hole the hole cards, as a card mask of two to five cards
+     * @param board the board cards, as a card mask of three to five cards
+     * @return the packed score of the hand
+     */
+    public static int evaluate(long hole, long board)
+    {
+        return new OmahaEvaluator(board).evaluate(hole);
+    }
+    
+    public long getBoard()
+    {
+        return board;
+    }
+    
+    /**
+     * Returns the score of the best hand that can be made from exactly two
+     * of the specified hole cards and three cards of the board.
+     * @param hole the hole cards, as a card mask of two to five cards
+     * @return the packed score of the hand
+     */
+    public int evaluate(long hole)
+    {
+        int numCards = Long.bitCount(hole);
+        if (numCards < 2 || numCards > 5 || (hole & board) != 0)
+        {
+            throw new IllegalArgumentException("An Omaha hand must hold two to five cards that are not on the board");
+        }
+        
+        //each pair of hole cards is walked straight off the mask, so scoring
+        //a hand allocates nothing
+        int best = 0;
+        for (long mi = hole; mi != 0; mi &= mi - 1)
+        {
+            int a = Long.numberOfTrailingZeros(mi);
+            for (long mj = mi & mi - 1; mj != 0; mj &= mj - 1)
+            {
+                int b = Long.numberOfTrailingZeros(mj);
+                int pairKey = HandEvaluator.rankKey(a % 13) + HandEvaluator.rankKey(b % 13);
+                
+                //only a suited pair can make a flush, and only with a triple
+                //of its own suit
+                int pairSuit = a / 13 == b / 13 ? a / 13 : -1;
+                int pairRanks = 1 << a % 13 | 1 << b % 13;
+                
+                for (int t = 0; t < numTriples; t++)
+                {
+                    int score;
+                    if (pairSuit >= 0 && tripleSuits[t] == pairSuit)
+                    {
+                        score = HandEvaluator.lookupFlush(tripleRanks[t] | pairRanks);
+                    }
+                    else
+                    {
+                        score = HandEvaluator.lookupRanks(tripleKeys[t] + pairKey);
+                    }
+                    if (score > best) best = score;
+                }
+            }
+        }
+        return best;
+    }
+}
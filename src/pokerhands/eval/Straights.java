@@ -0,0 +1,35 @@
+package pokerhands.eval;
+
+/**
+ * Finds straights in 13-bit rank masks, where deuces are the lowest bit and
+ * aces the highest.
+ * @author jfritz
+ */
+public final class Straights
+{
+    private Straights()
+    {
+    }
+    
+    /**
+     * Returns the rank of the highest card of the highest straight in the
+     * mask, or -1 if the mask does not contain a straight.
+     * An ace may play low, making 5-4-3-2-A the lowest possible straight.
+     * @param rankMask a 13-bit mask with one bit set per rank held
+     * @return a rank from 3 (a five) to 12 (an ace), or -1
+     */
+    public static int getTop(int rankMask)
+    {
+        //shift every rank up one and put a second copy of the ace below the
+        //deuce, so that the wheel is just another five ranks in a row
+        int m = rankMask << 1 | rankMask >>> 12 & 1;
+        
+        //a bit survives only if it is the lowest of five set bits in a row
+        int runs = m & m >>> 1 & m >>> 2 & m >>> 3 & m >>> 4;
+        if (runs == 0) return -1;
+        
+        //the top of the highest run is four above its lowest bit, and one
+        //less to undo the shift
+        return 31 - Integer.numberOfLeadingZeros(runs) + 3;
+    }
+}
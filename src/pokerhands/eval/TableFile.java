@@ -0,0 +1,161 @@
+package pokerhands.eval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the lookup tables of HandEvaluator, so that they can be
+ * built once ahead of time rather than every time the program starts.
+ *
+ * A table file starts with a header holding a magic number, a format
+ * version, the parameters the tables were built with, the length of each
+ * table and a CRC-32 of everything after the header. The tables follow,
+ * big-endian: the flush table, the rank table and the displacements.
+ * A file whose header or checksum does not match is ignored.
+ *
+ * Files are read through a read-only memory map, which saves copying the
+ * file through a read buffer, but the tables are then copied into the
+ * evaluator's own arrays. Each program therefore holds its own copy of the
+ * tables on its heap, and the mapping is only used while the file is
+ * checked and read.
+ *
+ * Run this class to write a table file:
+ * <pre>
+ *     java pokerhands.eval.TableFile [file]
+ * </pre>
+ * The file defaults to HandEvaluator.DEFAULT_TABLE_FILE.
+ * @author jfritz
+ */
+public final class TableFile
+{
+    //"PKHT"
+    private static final int MAGIC = 0x504B4854;
+    
+    /**
+     * The version of the file format. Change it whenever the layout of the
+     * file or the meaning of the tables changes.
+     */
+    static final int VERSION = 1;
+    
+    //magic, version, four parameters, three lengths and a checksum
+    private static final int HEADER_BYTES = 10 * Integer.BYTES;
+    
+    private TableFile()
+    {
+    }
+    
+    /**
+     * Writes the lookup tables to a file.
+     * @param args the file to write, if not the default
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        Path file = Paths.get(args.length > 0 ? args[0] : HandEvaluator.DEFAULT_TABLE_FILE);
+        HandEvaluator.writeTables(file);
+        System.out.println("Wrote " + Files.size(file) + " bytes of lookup tables to " + file.toAbsolutePath());
+    }
+    
+    /**
+     * Writes tables to a file. The file is written beside its final name
+     * and then moved into place, so a program starting at the same time
+     * never reads half of it.
+     */
+    static void write(Path file, int[] flushTable, int[] rankTable, byte[] displacements) throws IOException
+    {
+        ByteBuffer tables = ByteBuffer.allocate(payloadBytes(flushTable, rankTable, displacements));
+        tables.asIntBuffer().put(flushTable).put(rankTable);
+        tables.position((flushTable.length + rankTable.length) * Integer.BYTES);
+        tables.put(displacements);
+        tables.flip();
+        
+        CRC32 crc = new CRC32();
+        crc.update(tables.duplicate());
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION);
+        for (int p : HandEvaluator.TABLE_PARAMETERS)
+        {
+            header.putInt(p);
+        }
+        header.putInt(flushTable.length).putInt(rankTable.length).putInt(displacements.length);
+        header.putInt((int)crc.getValue());
+        header.flip();
+        
+        Path absolute = file.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, 
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+            {
+                while (header.hasRemaining() || tables.hasRemaining())
+                {
+                    channel.write(new ByteBuffer[] {header, tables});
+                }
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Fills the tables from a file, if it exists and was written for tables
+     * of the same sizes and parameters.
+     * The tables are left untouched unless the whole file checks out.
+     * @return true if the tables were read
+     */
+    static boolean read(Path file, int[] flushTable, int[] rankTable, byte[] displacements)
+    {
+        if (!Files.isRegularFile(file)) return false;
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size != HEADER_BYTES + payloadBytes(flushTable, rankTable, displacements)) return false;
+            
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) return false;
+            for (int p : HandEvaluator.TABLE_PARAMETERS)
+            {
+                if (map.getInt() != p) return false;
+            }
+            if (map.getInt() != flushTable.length
+                    || map.getInt() != rankTable.length
+                    || map.getInt() != displacements.length) return false;
+            int checksum = map.getInt();
+            
+            ByteBuffer tables = map.slice();
+            CRC32 crc = new CRC32();
+            crc.update(tables.duplicate());
+            if ((int)crc.getValue() != checksum) return false;
+            
+            tables.asIntBuffer().get(flushTable).get(rankTable);
+            tables.position((flushTable.length + rankTable.length) * Integer.BYTES);
+            tables.get(displacements);
+            return true;
+        }
+        catch (IOException e)
+        {
+            //a file that cannot be read is treated as missing, and the tables
+            //are built instead
+            return false;
+        }
+    }
+    
+    private static int payloadBytes(int[] flushTable, int[] rankTable, byte[] displacements)
+    {
+        return (flushTable.length + rankTable.length) * Integer.BYTES + displacements.length;
+    }
+}
@@ -0,0 +1,238 @@
+package pokerhands.eval;
+
+import java.nio.ByteBuffer;
+import pokerhands.Showdown;
+
+/**
+ * Reads and writes hands, boards and results in a compact binary form, and
+ * scores hands straight out of a buffer.
+ *
+ * A set of cards is written either as its 64-bit card mask, in 8 bytes, or
+ * as the index of each card, one byte per card, in which case the reader
+ * has to know how many cards to expect. A seven card hand therefore takes
+ * 8 or 7 bytes. A result is the hand's packed score, as an int.
+ * A showdown is written as its five board cards followed by the two hole
+ * cards of each player, one byte per card, and its result as the winning
+ * score followed by a mask of the winning seats, two ints.
+ *
+ * Numbers are read and written in the byte order of the buffer, which is
+ * big-endian unless it has been changed, so both ends must agree on it.
+ * Nothing here creates a Card or a Hand, so a direct buffer filled from a
+ * socket or a file can be scored without any objects per hand.
+ * The evaluate methods check every card they read, and stop at the first
+ * bad one with an IllegalArgumentException, leaving both positions where
+ * they were.
+ * @author jfritz
+ */
+public final class WireFormat
+{
+    /**
+     * The number of bytes a card mask takes up.
+     */
+    public static final int MASK_BYTES = Long.BYTES;
+    
+    /**
+     * The number of bytes a seven card hand takes up when written as card
+     * indices.
+     */
+    public static final int CARD_BYTES = 7;
+    
+    /**
+     * The number of bytes a score takes up.
+     */
+    public static final int SCORE_BYTES = Integer.BYTES;
+    
+    private WireFormat()
+    {
+    }
+    
+    public static void putMask(ByteBuffer buffer, long cardMask)
+    {
+        buffer.putLong(cardMask);
+    }
+    
+    /**
+     * Reads a card mask, making sure that it only holds real cards.
+     * @param buffer the buffer to read from
+     * @return the card mask
+     */
+    public static long getMask(ByteBuffer buffer)
+    {
+        long mask = buffer.getLong();
+        if (mask >>> 52 != 0)
+        {
+            throw new IllegalArgumentException("Not a card mask: " + Long.toHexString(mask));
+        }
+        return mask;
+    }
+    
+    /**
+     * Writes the index of every card in a mask, lowest first, one byte each.
+     * @param buffer the buffer to write to
+     * @param cardMask the cards to write
+     */
+    public static void putCards(ByteBuffer buffer, long cardMask)
+    {
+        for (long m = cardMask; m != 0; m &= m - 1)
+        {
+            buffer.put((byte)Long.numberOfTrailingZeros(m));
+        }
+    }
+    
+    /**
+     * Reads the specified number of card indices, one byte each.
+     * @param buffer the buffer to read from
+     * @param numCards the number of cards to read
+     * @return a card mask of the cards that were read
+     */
+    public static long getCards(ByteBuffer buffer, int numCards)
+    {
+        long mask = 0;
+        for (int i = 0; i < numCards; i++)
+        {
+            mask = addCard(mask, buffer.get());
+        }
+        return mask;
+    }
+    
+    public static void putScore(ByteBuffer buffer, int score)
+    {
+        buffer.putInt(score);
+    }
+    
+    public static int getScore(ByteBuffer buffer)
+    {
+        return buffer.getInt();
+    }
+    
+    /**
+     * Scores hands written as card masks, reading from one buffer and
+     * writing scores to another, until either runs out.
+     * @param hands the hands, each a card mask of five to seven cards
+     * @param scores the buffer to write each hand's score to
+     * @return the number of hands scored
+     */
+    public static int evaluateMasks(ByteBuffer hands, ByteBuffer scores)
+    {
+        int n = Math.min(hands.remaining() / MASK_BYTES, scores.remaining() / SCORE_BYTES);
+        int in = hands.position();
+        int out = scores.position();
+        
+        //absolute reads and writes leave the positions alone until the end,
+        //so the loop is nothing but loads, lookups and stores
+        for (int i = 0; i < n; i++, in += MASK_BYTES, out += SCORE_BYTES)
+        {
+            long mask = hands.getLong(in);
+            checkHand(mask);
+            scores.putInt(out, HandEvaluator.evaluate(mask));
+        }
+        hands.position(in);
+        scores.position(out);
+        return n;
+    }
+    
+    /**
+     * Scores seven card hands written as card indices, reading from one
+     * buffer and writing scores to another, until either runs out.
+     * @param hands the hands, seven bytes each
+     * @param scores the buffer to write each hand's score to
+     * @return the number of hands scored
+     */
+    public static int evaluateCards(ByteBuffer hands, ByteBuffer scores)
+    {
+        int n = Math.min(hands.remaining() / CARD_BYTES, scores.remaining() / SCORE_BYTES);
+        int in = hands.position();
+        int out = scores.position();
+        for (int i = 0; i < n; i++, in += CARD_BYTES, out += SCORE_BYTES)
+        {
+            long mask = 0;
+            for (int c = 0; c < CARD_BYTES; c++)
+            {
+                mask = addCard(mask, hands.get(in + c));
+            }
+            scores.putInt(out, HandEvaluator.evaluate(mask));
+        }
+        hands.position(in);
+        scores.position(out);
+        return n;
+    }
+    
+    /**
+     * Settles showdowns of Texas hold'em, reading each as five board cards
+     * and two hole cards per player, and writing the winning score and a
+     * mask of the winning seats, with seat 0 in the lowest bit.
+     * @param showdowns the showdowns to settle
+     * @param numPlayers the number of players in every showdown, up to 23
+     * @param results the buffer to write each result to
+     * @return the number of showdowns settled
+     */
+    public static int evaluateShowdowns(ByteBuffer showdowns, int numPlayers, ByteBuffer results)
+    {
+        if (numPlayers < 1 || numPlayers > 23)
+        {
+            throw new IllegalArgumentException("A showdown holds one to 23 players, not " + numPlayers);
+        }
+        
+        int recordBytes = 5 + 2 * numPlayers;
+        int n = Math.min(showdowns.remaining() / recordBytes, results.remaining() / (2 * SCORE_BYTES));
+        int in = showdowns.position();
+        int out = results.position();
+        int[] scores = new int[numPlayers];
+        int[] winners = new int[numPlayers];
+        for (int i = 0; i < n; i++, in += recordBytes, out += 2 * SCORE_BYTES)
+        {
+            long board = 0;
+            for (int c = 0; c < 5; c++)
+            {
+                board = addCard(board, showdowns.get(in + c));
+            }
+            
+            long used = board;
+            for (int p = 0; p < numPlayers; p++)
+            {
+                long hole = addCard(addCard(0, showdowns.get(in + 5 + 2 * p)), showdowns.get(in + 6 + 2 * p));
+                if ((used & hole) != 0)
+                {
+                    throw new IllegalArgumentException("The same card cannot be dealt twice");
+                }
+                used |= hole;
+                scores[p] = HandEvaluator.evaluate(hole | board);
+            }
+            
+            int numWinners = Showdown.findWinners(scores, numPlayers, winners);
+            int seats = 0;
+            for (int w = 0; w < numWinners; w++)
+            {
+                seats |= 1 << winners[w];
+            }
+            results.putInt(out, scores[winners[0]]);
+            results.putInt(out + SCORE_BYTES, seats);
+        }
+        showdowns.position(in);
+        results.position(out);
+        return n;
+    }
+    
+    /**
+     * Adds a card index read from the wire to a card mask, making sure it is
+     * a card and is not already there.
+     */
+    private static long addCard(long mask, byte card)
+    {
+        long bit = 1L << card;
+        if (card < 0 || card >= 52 || (mask & bit) != 0)
+        {
+            throw new IllegalArgumentException("Card " + card + " is not a card or is already in the hand");
+        }
+        return mask | bit;
+    }
+    
+    private static void checkHand(long mask)
+    {
+        int numCards = Long.bitCount(mask);
+        if (numCards < 5 || numCards > 7 || mask >>> 52 != 0)
+        {
+            throw new IllegalArgumentException("Not a hand of five to seven cards: " + Long.toHexString(mask));
+        }
+    }
+}
@@ -1,9 +1,5 @@
 package pokerhands.hands;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
 import pokerhands.Card;
 
 /**
@@ -15,118 +11,41 @@ public class Flush extends Hand implements Comparable<Flush>
 {
     public Flush(Hand h)
     {
-        this.cards = h.getCards();
+        this.setCards(h);
         h = this.getValidHand();
         if (h != null)
         {
-            this.cards = h.getCards();
+            this.setCards(h);
         }
         else
         {
-            this.cards = null;
+            this.clear();
         }
     }
     
     @Override
     public Hand getValidHand()
     {
-        if (cards.size() < 5) return null;
+        if (this.getNumCards() < 5) return null;
         
-        //map each suit to the cards of that suit
-        HashMap<Card.SUIT, List<Card>> suitBuckets = new HashMap<>();
+        //popcounts of the suit masks find the flush, and a table keyed by
+        //the suit's rank mask picks its five highest ranks
+        HandAnalysis a = this.getAnalysis();
+        int suit = a.getFlushSuit();
+        if (suit < 0) return null;
         
-        //sort the cards into buckets based on rank
-        for (Card c : cards)
+        Hand h = new Hand();
+        for (int ranks = a.getFlushRanks(); ranks != 0; ranks &= ranks - 1)
         {
-            List<Card> suit = new ArrayList<>();
-            if (suitBuckets.containsKey(c.getSuit()))
-            {
-                suit.addAll(suitBuckets.get(c.getSuit()));
-            }
-            suit.add(c);
-            suitBuckets.put(c.getSuit(), suit);
+            h.add(Card.fromIndex(13 * suit + Integer.numberOfTrailingZeros(ranks)));
         }
-        
-        //if any of the suits have more than five cards, then there is a flush 
-        //of that suit in the hand.
-        for (Card.SUIT s : suitBuckets.keySet())
-        {
-            if (suitBuckets.get(s).size() >= 5)
-            {
-                //return the top five cards of that suit
-                List<Card> suit = suitBuckets.get(s);
-                Collections.sort(suit);
-                
-                Hand h = new Hand();
-                for (int i = 0; i < suit.size(); i++)
-                {
-                    //take aces first because they are high
-                    if (suit.get(i).getRank() == 1)
-                    {
-                        h.add(suit.get(i));
-                    }
-                    else
-                    {
-                        break;
-                    }
-                }
-                for (int i = suit.size() - 1; i != 0; i--)
-                {
-                    if (h.getNumCards() == 5) break;
-                    
-                    //on this pass, ignore aces - we already dealt with them
-                    if (suit.get(i).getRank() != 1) h.add(suit.get(i));
-                }
-                
-                if (h.getNumCards() == 5) return h;
-                return null;
-            }
-        }
-        
-        return null;
+        return h;
     }
     
     @Override
     public int compareTo(Flush t) 
     {
-        //first handle aces because they're sorted to the bottom of the hand
-        int index = 0;
-        while (index < this.getNumCards())
-        {
-            if (this.get(index).getRank() == 1 && t.get(index).getRank() == 1)
-            {
-                index++;
-            }
-            else if (this.get(index).getRank() == 1 && t.get(index).getRank() != 1)
-            {
-                return 1;
-            }
-            else if (this.get(index).getRank() != 1 && t.get(index).getRank() == 1)
-            {
-                return -1;
-            }
-            else
-            {
-                //neither hand has an ace at index
-                break;
-            }
-        }
-        
-        //then continue on handling high cards
-        index = this.getNumCards() - 1;
-        while (this.get(index).getRank() == t.get(index).getRank())
-        {
-            index--;
-            if (index < 0) return 0;
-        }
-        
-        if (this.get(index).getRank() < t.get(index).getRank())
-        {
-            return - 1;
-        }
-        else
-        {
-            return 1;
-        }
+        //scores pack the ranks that break ties, so the higher score wins
+        return Integer.compare(this.getScore(), t.getScore());
     }
 }
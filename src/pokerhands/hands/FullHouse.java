@@ -1,9 +1,5 @@
 package pokerhands.hands;
 
-import java.util.HashMap;
-import java.util.List;
-import pokerhands.Card;
-
 /**
  * A full house is defined as three cards of one rank and two cards of another. 
  * Suit does not matter.
@@ -16,103 +12,41 @@ public class FullHouse extends Hand implements Comparable<FullHouse>
     
     public FullHouse(Hand h)
     {
-        this.cards = h.getCards();
+        this.setCards(h);
         h = this.getValidHand();
         if (h != null)
         {
-            this.cards = h.getCards();
+            this.setCards(h);
         }
         else
         {
-            this.cards = null;
+            this.clear();
         }
     }
     
     @Override
     public Hand getValidHand()
     {
-        if (cards.size() < 5) return null;
-        
-        //map each rank to the cards of that rank
-        HashMap<Integer, List<Card>> rankBuckets = bucketCardsByRank(cards);
-        
-        Hand h = new Hand();
-        boolean three = false;
-        boolean pair = false;
+        if (this.getNumCards() < 5) return null;
         
-        //aces are high, try to find three aces first
-        if (rankBuckets.get(1) != null)
-        {
-            if (rankBuckets.get(1).size() >= 3)
-            {
-                for (int i = 0; i < 3; i++)
-                {
-                    h.add(rankBuckets.get(1).remove(0));
-                }
-                if (tripRank == 0) tripRank = 1;
-                three = true;
-            }
-            if (rankBuckets.get(1).isEmpty()) rankBuckets.remove(1);
-        }
+        //the counts of each rank are shared with every other type of hand
+        //made from the same cards
+        HandAnalysis a = this.getAnalysis();
+        if (a.getTripMask() == 0) return null;
         
-        //didn't have three aces? try the next highest cards
-        if (!three)
-        {
-            for (int r = 13; r > 1; r--)
-            {
-                if (rankBuckets.get(r) != null && rankBuckets.get(r).size() >= 3)
-                {
-                    for (int i = 0; i < 3; i++)
-                    {
-                        h.add(rankBuckets.get(r).remove(0));
-                    }
-                    if (rankBuckets.get(r).isEmpty()) rankBuckets.remove(r);
-                    if (tripRank == 0) tripRank = r;
-                    three = true;
-                    break;
-                }
-            }
-        }
-        
-        //if we still didn't get our three of a kind, dump out
-        if (!three) return null;
-        
-        //aces are high, try to find two aces first
-        if (rankBuckets.get(1) != null)
-        {
-            if (rankBuckets.get(1).size() >= 2)
-            {
-                for (int i = 0; i < 2; i++)
-                {
-                    h.add(rankBuckets.get(1).remove(0));
-                }
-                if (pairRank == 0) pairRank = 1;
-                pair = true;
-            }
-            if (rankBuckets.get(1).isEmpty()) rankBuckets.remove(1);
-        }
+        //take the highest three of a kind, aces first
+        int trips = highestRank(a.getTripMask());
+        if (tripRank == 0) tripRank = toCardRank(trips);
         
-        //didn't have a pair of aces? try the next highest cards
-        if (!pair)
-        {
-            for (int r = 13; r > 1; r--)
-            {
-                if (rankBuckets.get(r) != null && rankBuckets.get(r).size() >= 2)
-                {
-                    for (int i = 0; i < 2; i++)
-                    {
-                        h.add(rankBuckets.get(r).remove(0));
-                    }
-                    if (rankBuckets.get(r).isEmpty()) rankBuckets.remove(r);
-                    if (pairRank == 0) pairRank = r;
-                    pair = true;
-                    break;
-                }
-            }
-        }
+        //then the highest pair of another rank, which may be taken from a
+        //second three of a kind
+        int pair = highestRank(a.getPairMask() & ~(1 << trips));
+        if (pair < 0) return null;
         
-        //return null if we couldn't build a valid hand
-        if (!(three && pair)) return null;
+        Hand h = new Hand();
+        this.addCardsOfRank(h, trips, 3);
+        this.addCardsOfRank(h, pair, 2);
+        if (pairRank == 0) pairRank = toCardRank(pair);
         return h;
     }
     
@@ -129,28 +63,7 @@ public class FullHouse extends Hand implements Comparable<FullHouse>
     @Override
     public int compareTo(FullHouse t) 
     {
-        if (this.tripRank > t.getTripRank())
-        {
-            return 1;
-        }
-        else if (this.tripRank < t.getTripRank())
-        {
-            return -1;
-        }
-        else
-        {
-            if (this.pairRank > t.getPairRank())
-            {
-                return 1;
-            }
-            else if (this.pairRank < t.getPairRank())
-            {
-                return -1;
-            }
-            else
-            {
-                return 0;
-            }
-        }
+        //scores pack the ranks that break ties, so the higher score wins
+        return Integer.compare(this.getScore(), t.getScore());
     }
 }
\ No newline at end of file
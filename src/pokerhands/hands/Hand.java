@@ -2,6 +2,7 @@ package pokerhands.hands;
 
 import java.util.*;
 import pokerhands.Card;
+import pokerhands.eval.HandEvaluator;
 
 /**
  * A collection of playing cards.
@@ -9,11 +10,21 @@ import pokerhands.Card;
  */
 public class Hand implements Iterable<Card>
 {    
-    protected List<Card> cards = null;
+    //the bits of a card mask that hold one rank in each of the four suits
+    private static final long RANK_BITS = 1L | 1L << 13 | 1L << 26 | 1L << 39;
+    
+    //hands are sorted by rank ascending, with aces first
+    private static final int[] SORT_ORDER = {12, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+    
+    //one bit per card, at the card's index
+    private long mask = 0;
+    
+    //the rank and suit counts of the cards, worked out when first needed and
+    //thrown away whenever the cards change
+    private HandAnalysis analysis = null;
 
     public Hand()
     {
-        cards = new ArrayList<>();
     }
     
     public Hand(Card c)
@@ -22,7 +33,7 @@ public class Hand implements Iterable<Card>
         
         if (c != null)
         {
-            cards.add(c);
+            this.add(c);
         }
     }
     
@@ -32,35 +43,53 @@ public class Hand implements Iterable<Card>
         
         if (hand != null)
         {
-            cards.addAll(hand);
+            for (Card c : hand)
+            {
+                this.add(c);
+            }
         }
-        Collections.sort(cards);
     }
     
     public Hand(Hand player, Hand community)
     {
         this();
         
-        if (player != null)
-        {
-            cards.addAll(player.getCards());
-        }
-        if (community != null)
-        {
-            cards.addAll(community.getCards());
-        }
-        Collections.sort(cards);
+        this.addAll(player);
+        this.addAll(community);
     }
     
     /**
      * Adds the specified card to the hand.
-     * After the card has been added, the hand is sorted by rank ascending
+     * The hand is always sorted by rank ascending, so the card takes its 
+     * place among the others without any further work.
      * @param c the card to add
      */
     public void add(Card c)
     {
-        cards.add(c);
-        Collections.sort(cards);
+        mask |= c.getMask();
+        analysis = null;
+    }
+    
+    /**
+     * Adds every card in the specified hand to this hand.
+     * @param h the hand to merge into this one
+     */
+    public void addAll(Hand h)
+    {
+        if (h == null) return;
+        
+        mask |= h.mask;
+        analysis = null;
+    }
+    
+    /**
+     * Returns true if the specified card is in the hand.
+     * @param c the card to look for
+     * @return true if the specified card is in the hand.
+     */
+    public boolean contains(Card c)
+    {
+        return (mask & c.getMask()) != 0;
     }
     
     /**
@@ -71,7 +100,7 @@ public class Hand implements Iterable<Card>
      */
     public Card get(int index)
     {
-        return cards.get(index);
+        return Card.fromIndex(cardIndexAt(index));
     }
     
     /**
@@ -85,7 +114,32 @@ public class Hand implements Iterable<Card>
      */
     public Card remove(int index)
     {
-        return cards.remove(index);
+        int i = cardIndexAt(index);
+        mask &= ~(1L << i);
+        analysis = null;
+        return Card.fromIndex(i);
+    }
+    
+    /**
+     * Removes the specified card from the hand, if it is there.
+     * @param c the card to remove
+     * @return true if the card was in the hand
+     */
+    public boolean remove(Card c)
+    {
+        boolean found = this.contains(c);
+        mask &= ~c.getMask();
+        if (found) analysis = null;
+        return found;
+    }
+    
+    /**
+     * Removes every card from the hand.
+     */
+    public void clear()
+    {
+        mask = 0;
+        analysis = null;
     }
     
     /**
@@ -94,7 +148,7 @@ public class Hand implements Iterable<Card>
      */
     public int getNumCards()
     {
-        return cards.size();
+        return Long.bitCount(mask);
     }
     
     /**
@@ -103,27 +157,70 @@ public class Hand implements Iterable<Card>
      */
     public boolean isEmpty()
     {
-        return this.getNumCards() == 0;
+        return mask == 0;
+    }
+    
+    /**
+     * Returns the cards in the hand as a mask with one bit set at the 
+     * index of each card.
+     * @return the cards in the hand as a mask.
+     */
+    public long getMask()
+    {
+        return mask;
     }
     
     /**
      * Returns a list of the cards that are in the hand.
-     * The cards are guaranteed to be sorted by rank ascending.
+     * The cards are guaranteed to be sorted by rank ascending. The list is a
+     * copy, so changing it does not change the hand.
      * @return a list of cards that are in the hand.
      */
     public List<Card> getCards()
     {
+        List<Card> cards = new ArrayList<>(this.getNumCards());
+        for (Card c : this)
+        {
+            cards.add(c);
+        }
         return cards;
     }
     
+    /**
+     * Replaces the cards in this hand with the cards in the specified hand.
+     * @param h the hand to copy, or null to empty this hand
+     */
+    protected void setCards(Hand h)
+    {
+        this.clear();
+        this.addAll(h);
+        
+        //the copy holds the same cards, so it can share their analysis
+        if (h != null) analysis = h.analysis;
+    }
+    
+    /**
+     * Returns the counts of each rank and suit in the hand.
+     * The analysis is worked out the first time it is needed and kept until
+     * the cards in the hand change.
+     * @return the analysis of the cards in the hand
+     */
+    public HandAnalysis getAnalysis()
+    {
+        if (analysis == null)
+        {
+            analysis = new HandAnalysis(mask);
+        }
+        return analysis;
+    }
+    
     /**
      * Returns true if this is a valid five card poker hand.
      * @return true if this is a valid five card poker hand.
      */
     public boolean isValid()
     {
-        if (this.cards == null || this.cards.size() < 5) return false;
-        return true;
+        return this.getNumCards() >= 5;
     }
     
     /**
@@ -132,189 +229,180 @@ public class Hand implements Iterable<Card>
      */
     public Hand getValidHand()
     {
-        List<Card> validCards = new ArrayList<>();
+        if (this.getNumCards() < 5) return null;
         
-        for (int i = 0; i < Math.min(5, cards.size()); i++)
+        Hand h = new Hand();
+        for (int i = 0; i < 5; i++)
         {
-            validCards.add(cards.get(i));
-        }
-        
-        if (validCards.size() == 5)
-        {
-            return new Hand(validCards);
-        }
-        else
-        {
-            return null;
+            h.add(this.get(i));
         }
+        return h;
     }
     
     /**
-     * Returns the score for this type of hand.
-     * @return 
+     * Returns the score of the best five card hand that can be made from the
+     * cards in this hand.
+     * Scores are packed so that the higher score always wins. See HandScore.
+     * @return the score of the hand, or 0 if the hand does not have between
+     * five and seven cards
      */
     public int getScore()
     {
-        return 0;
+        if (!this.isValid() || this.getNumCards() > 7) return 0;
+        return HandEvaluator.evaluate(this);
     }
     
     @Override
     public Iterator<Card> iterator() 
     {
-        return cards.iterator();
+        return new Iterator<Card>() {
+            
+            //the cards that have not been returned yet
+            private long remaining = mask;
+            
+            //the position in SORT_ORDER of the rank being returned
+            private int rank = 0;
+            
+            @Override
+            public boolean hasNext() 
+            {
+                return remaining != 0;
+            }
+
+            @Override
+            public Card next() 
+            {
+                if (remaining == 0) throw new NoSuchElementException();
+                
+                long ofRank = remaining & RANK_BITS << SORT_ORDER[rank];
+                while (ofRank == 0)
+                {
+                    rank++;
+                    ofRank = remaining & RANK_BITS << SORT_ORDER[rank];
+                }
+                
+                int i = Long.numberOfTrailingZeros(ofRank);
+                remaining &= ~(1L << i);
+                return Card.fromIndex(i);
+            }
+        };
     }
     
     @Override
     public String toString()
     {
         StringBuilder sb = new StringBuilder();
-        for (Card c : cards)
+        for (Card c : this)
         {
-            sb.append(c.toString());
-            if (c != cards.get(cards.size() - 1))
+            if (sb.length() > 0)
             {
                 sb.append(", ");
             }
+            sb.append(c.toString());
         }
         return sb.toString();
     }
     
     /**
-     * Returns a list of all sub-hands of this hand that constitute a five 
-     * card straight.
-     * The list is ordered from lowest-valued straight to highest.
-     * @return a list of all sub-hands of this hand that constitute a five 
-     * card straight.
+     * Finds the card index of the card at the specified position in the hand.
+     * Rather than scanning card by card, whole ranks are skipped at once.
      */
-    protected List<Hand> getStraights()
+    private int cardIndexAt(int index)
     {
-        List<Hand> straights = new ArrayList<>();
-        if (cards.size() < 5) return straights;
-        
-        List<Card> straight = new ArrayList<>();
-        int prevRank = 0;
-        
-        //assembles the longest straight in the hand
-        for (Card c : cards)
+        if (index >= 0)
         {
-            if (prevRank != 0)
+            for (int r : SORT_ORDER)
             {
-                if (c.getRank() == prevRank + 1)
-                {
-                    //if the current card's rank is one greater than that of
-                    //the previous card, it is part of the straight
-                    straight.add(c);
-                }
-                else
+                long ofRank = mask & RANK_BITS << r;
+                int n = Long.bitCount(ofRank);
+                if (index < n)
                 {
-                    //the straight was broken. split it into five card runs
-                    //and add each of them to our collection of straights.
-                    straights.addAll(getSubRuns(straight, 5));
-                    
-                    //start fresh with just the current card
-                    straight = new ArrayList<>();
-                    straight.add(c);
-                }
-                
-                if (c == cards.get(cards.size() - 1))
-                {
-                    //if the highest card in the hand is a king
-                    if (c.getRank() == 13)
+                    //drop the lower cards of this rank that come before index
+                    for (int i = 0; i < index; i++)
                     {
-                        //and the lowest card is an ace
-                        if (cards.get(0).getRank() == 1)
-                        {
-                            //then the both the king and the ace count 
-                            //towards the straight
-                            straight.add(cards.get(0));
-                        }
+                        ofRank &= ofRank - 1;
                     }
+                    return Long.numberOfTrailingZeros(ofRank);
                 }
+                index -= n;
             }
-            else
-            {
-                //always add the first card to our straight
-                straight.add(c);
-            }
-            
-            //always save the rank of the previous card
-            prevRank = c.getRank();
         }
-        
-        //split the remaining straight into five card runs
-        //and add each of them to our collection of straights.
-        straights.addAll(getSubRuns(straight, 5));
-        
-        return straights;
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.getNumCards());
     }
     
     /**
-     * Splits the cards into runs.
-     * Each run contains exactly runLength cards. If the number of cards in
-     * the hand is not divisible by runLength, not all cards will be used in
-     * the returned collection.
-     * @param runLength
-     * @return 
+     * Moves the five cards of a straight from this hand into another hand,
+     * taking the lowest suit of each rank from among the allowed cards.
+     * @param h the hand to add the cards to
+     * @param top the rank of the highest card of the straight, from 3 (a
+     * five) to 12 (an ace)
+     * @param allowed a mask of the cards that may be used
      */
-    private List<Hand> getSubRuns(List<Card> cards, int runLength)
+    protected void addStraight(Hand h, int top, long allowed)
     {
-        //in this function, the local declaration cards overrides the class-
-        //level declaration of the same name.
-        
-        List<Hand> straights = new ArrayList<>();
-        
-        //we're starting with one long run, so a sub-run 
-        //could be said to begin at any of the cards within it.
-        for (int s = 0; s < cards.size(); s++)
+        for (int r = top; r > top - 5; r--)
         {
-            Hand h = new Hand();
-            for (int i = s; i < Math.min(s + runLength, cards.size()); i++)
-            {
-                //try to add the first runLength cards after s to the hand
-                //this will be the sub-run that starts at index s
-                h.add(cards.get(i));
-            }
-
-            if (h.getNumCards() == runLength) 
-            {
-                //if the sub-run has runLength cards in it, keep it
-                straights.add(h);
-            }
-            else
-            {
-                //otherwise, none of the remaining sub-runs will either,
-                //so there's no point in continuing.
-                break;
-            }
+            //the ace plays low in a five high straight
+            long ofRank = mask & allowed & RANK_BITS << (r < 0 ? 12 : r);
+            h.add(Card.fromIndex(Long.numberOfTrailingZeros(ofRank)));
         }
-        
-        return straights;
     }
     
     /**
-     * Sorts the provided list of cards into a dictionary structure that
-     * collects lists of cards with the same rank together.
-     * This dictionary allows us to examine the frequency of card ranks in the hand.
-     * @param cards the cards to sort into the dictionary
-     * @return a HashMap of rank=>list of cards with that rank
+     * Returns a mask of every card of the specified suit.
+     * @param suit the ordinal of the suit
      */
-    protected HashMap<Integer, List<Card>> bucketCardsByRank(List<Card> cards)
+    protected static long suitCards(int suit)
     {
-        //map each rank to the cards of that rank
-        HashMap<Integer, List<Card>> rankBuckets = new HashMap<>();
-        
-        //sort the cards into buckets based on rank
-        for (Card c : cards)
+        return 0x1FFFL << 13 * suit;
+    }
+    
+    /**
+     * Moves up to the specified number of cards of a rank from this hand into
+     * another hand, lowest suit first.
+     * @param h the hand to add the cards to
+     * @param rank a rank from 0 (a deuce) to 12 (an ace)
+     * @param howMany the most cards to add
+     */
+    protected void addCardsOfRank(Hand h, int rank, int howMany)
+    {
+        long ofRank = mask & ~h.mask & RANK_BITS << rank;
+        for (int i = 0; i < howMany && ofRank != 0; i++)
         {
-            List<Card> rank = new ArrayList<>();
-            if (rankBuckets.containsKey(c.getRank()))
-            {
-                rank.addAll(rankBuckets.get(c.getRank()));
-            }
-            rank.add(c);
-            rankBuckets.put(c.getRank(), rank);
+            h.add(Card.fromIndex(Long.numberOfTrailingZeros(ofRank)));
+            ofRank &= ofRank - 1;
         }
-        
-        return rankBuckets;
+    }
+    
+    /**
+     * Pads the specified hand out to five cards with the highest cards of 
+     * this hand that it does not already hold. Aces are high.
+     * @param h the hand to pad
+     */
+    protected void addKickers(Hand h)
+    {
+        for (int r = 12; r >= 0 && h.getNumCards() < 5; r--)
+        {
+            this.addCardsOfRank(h, r, 5 - h.getNumCards());
+        }
+    }
+    
+    /**
+     * Returns the highest rank in a 13-bit rank mask.
+     * @return a rank from 0 (a deuce) to 12 (an ace), or -1 if the mask is
+     * empty
+     */
+    protected static int highestRank(int rankMask)
+    {
+        return 31 - Integer.numberOfLeadingZeros(rankMask);
+    }
+    
+    /**
+     * Converts a rank from 0 (a deuce) to 12 (an ace) into the rank a Card
+     * uses, from 1 (an ace) to 13 (a king).
+     */
+    protected static int toCardRank(int rank)
+    {
+        return (rank + 1) % 13 + 1;
     }
 }
@@ -0,0 +1,201 @@
+package pokerhands.hands;
+
+import pokerhands.Pokerhands.Type;
+import pokerhands.eval.Straights;
+
+/**
+ * The counts of each rank and suit in a set of cards, worked out once so
+ * that every type of hand can be checked against them.
+ *
+ * Ranks are numbered the way card indices number them: a deuce is 0 and an
+ * ace is 12. Suits are numbered by their ordinal.
+ * @author jfritz
+ */
+public final class HandAnalysis
+{
+    private static final int RANK_MASK = 0x1FFF;
+    
+    //the five highest ranks of every rank mask, or the whole mask if it has
+    //five ranks or less
+    private static final short[] TOP_FIVE = new short[RANK_MASK + 1];
+    
+    static
+    {
+        for (int mask = 0; mask <= RANK_MASK; mask++)
+        {
+            int top = mask;
+            while (Integer.bitCount(top) > 5)
+            {
+                //drop the lowest rank
+                top &= top - 1;
+            }
+            TOP_FIVE[mask] = (short)top;
+        }
+    }
+    
+    //the number of cards of each rank
+    private final int[] rankCounts = new int[13];
+    
+    //the ranks held in each suit, one bit per rank
+    private final int[] suitMasks = new int[4];
+    
+    //the ranks held in any suit, and the ranks held at least twice, at least
+    //three times and four times
+    private final int rankMask;
+    private final int pairMask;
+    private final int tripMask;
+    private final int quadMask;
+    
+    /**
+     * Analyses the cards in the specified mask.
+     * @param cardMask a mask with one bit set per card index
+     */
+    public HandAnalysis(long cardMask)
+    {
+        int ranks = 0;
+        for (int s = 0; s < 4; s++)
+        {
+            suitMasks[s] = (int)(cardMask >>> 13 * s) & RANK_MASK;
+            ranks |= suitMasks[s];
+        }
+        
+        int pairs = 0;
+        int trips = 0;
+        int quads = 0;
+        for (int r = 0; r < 13; r++)
+        {
+            int count = 0;
+            for (int s = 0; s < 4; s++)
+            {
+                count += suitMasks[s] >>> r & 1;
+            }
+            rankCounts[r] = count;
+            
+            if (count >= 2) pairs |= 1 << r;
+            if (count >= 3) trips |= 1 << r;
+            if (count == 4) quads |= 1 << r;
+        }
+        
+        rankMask = ranks;
+        pairMask = pairs;
+        tripMask = trips;
+        quadMask = quads;
+    }
+    
+    /**
+     * Returns the number of cards of the specified rank.
+     * @param rank a rank from 0 (a deuce) to 12 (an ace)
+     * @return the number of cards of that rank, from 0 to 4
+     */
+    public int getRankCount(int rank)
+    {
+        return rankCounts[rank];
+    }
+    
+    /**
+     * Returns the ranks held in the specified suit, one bit per rank.
+     * @param suit the ordinal of the suit
+     * @return a 13-bit mask with deuces in the lowest bit
+     */
+    public int getSuitMask(int suit)
+    {
+        return suitMasks[suit];
+    }
+    
+    public int getRankMask()
+    {
+        return rankMask;
+    }
+    
+    public int getPairMask()
+    {
+        return pairMask;
+    }
+    
+    public int getTripMask()
+    {
+        return tripMask;
+    }
+    
+    public int getQuadMask()
+    {
+        return quadMask;
+    }
+    
+    /**
+     * Returns the ordinal of the suit that holds five or more cards.
+     * If more than one suit does, which can only happen with more than
+     * seven cards, the first of them is returned.
+     * @return the suit of the flush, or -1 if there is no flush
+     */
+    public int getFlushSuit()
+    {
+        for (int s = 0; s < 4; s++)
+        {
+            if (Integer.bitCount(suitMasks[s]) >= 5) return s;
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the five highest ranks of the flush suit, one bit per rank.
+     * @return a 13-bit mask of the ranks that make up the flush, or 0 if
+     * there is no flush
+     */
+    public int getFlushRanks()
+    {
+        int suit = this.getFlushSuit();
+        return suit < 0 ? 0 : TOP_FIVE[suitMasks[suit]];
+    }
+    
+    /**
+     * Returns the rank of the highest card of the highest straight.
+     * @return a rank from 3 (a five) to 12 (an ace), or -1 if there is no
+     * straight
+     */
+    public int getStraightTop()
+    {
+        return Straights.getTop(rankMask);
+    }
+    
+    /**
+     * Returns the rank of the highest card of the highest straight made
+     * from cards of the specified suit.
+     * @param suit the ordinal of the suit
+     * @return a rank from 3 (a five) to 12 (an ace), or -1 if there is no
+     * straight flush in that suit
+     */
+    public int getStraightFlushTop(int suit)
+    {
+        return Straights.getTop(suitMasks[suit]);
+    }
+    
+    /**
+     * Returns the type of the best hand that can be made from the cards.
+     * Types are checked from the strongest to the weakest, and the first
+     * one that matches is returned without looking at the rest.
+     * @return the type of the best hand
+     */
+    public Type getType()
+    {
+        int flushSuit = this.getFlushSuit();
+        if (flushSuit >= 0)
+        {
+            int top = this.getStraightFlushTop(flushSuit);
+            if (top == 12) return Type.RoyalFlush;
+            if (top >= 0) return Type.StraightFlush;
+        }
+        
+        if (quadMask != 0) return Type.FourOfAKind;
+        
+        //a full house needs a second rank of at least a pair beside the trips
+        if (tripMask != 0 && Integer.bitCount(pairMask) >= 2) return Type.FullHouse;
+        
+        if (flushSuit >= 0) return Type.Flush;
+        if (this.getStraightTop() >= 0) return Type.Straight;
+        if (tripMask != 0) return Type.ThreeOfAKind;
+        if (Integer.bitCount(pairMask) >= 2) return Type.TwoPair;
+        if (pairMask != 0) return Type.OnePair;
+        return Type.HighCard;
+    }
+}
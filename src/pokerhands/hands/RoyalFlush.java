@@ -1,8 +1,5 @@
 package pokerhands.hands;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * A Royal Flush is a five-card straight flush consisting of a 10, jack, 
  * queen, king, and ace.
@@ -12,52 +9,34 @@ public class RoyalFlush extends Hand
 {
     public RoyalFlush(Hand h)
     {
-        this.cards = h.getCards();
+        this.setCards(h);
         h = this.getValidHand();
         if (h != null)
         {
-            this.cards = h.getCards();
+            this.setCards(h);
         }
         else
         {
-            this.cards = null;
+            this.clear();
         }    
     }
     
     @Override
     public Hand getValidHand()
     {
-        List<Hand> royalFlushHands = new ArrayList<>();
+        HandAnalysis a = this.getAnalysis();
         
-        for (Hand h : getStraights())
+        //a royal flush is an ace high straight within a single suit
+        for (int s = 0; s < 4; s++)
         {
-            //the special case for a 10,J,K,Q,A straight starts with the ace
-            //because all hands are sorted by rank ascending.
-            Flush f = (Flush)h;
-            Hand h2 = f.getValidHand();
-            if (h2.isValid() &&
-                h2.get(0).getRank() == 1 &&
-                h2.get(1).getRank() == 10 &&
-                h2.get(2).getRank() == 11 &&
-                h2.get(3).getRank() == 12 &&
-                h2.get(4).getRank() == 13)
+            if (a.getStraightFlushTop(s) == 12)
             {
-                royalFlushHands.add(h);
+                Hand h = new Hand();
+                this.addStraight(h, 12, suitCards(s));
+                return h;
             }
         }
         
-        //return the highest of the royal flush hands
-        if (royalFlushHands != null && royalFlushHands.size() > 0)
-        {
-            return royalFlushHands.get(royalFlushHands.size() - 1);
-        }
-        
         return null;
     }
-    
-    @Override
-    public int getScore()
-    {
-        return 10;
-    }
 }
@@ -1,8 +1,5 @@
 package pokerhands.hands;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * A five-card straight that also happens to be a flush.
  * @author jfritz
@@ -11,82 +8,47 @@ public class StraightFlush extends Hand implements Comparable<StraightFlush>
 {
     public StraightFlush(Hand h)
     {
-        this.cards = h.getCards();
+        this.setCards(h);
         h = this.getValidHand();
         if (h != null)
         {
-            this.cards = h.getCards();
+            this.setCards(h);
         }
         else
         {
-            this.cards = null;
+            this.clear();
         }
     }
     
     @Override
     public Hand getValidHand()
     {
-        List<Hand> flushHands = new ArrayList<>();
+        HandAnalysis a = this.getAnalysis();
         
-        for (Hand h : getStraights())
-        {
-            Flush f = (Flush)h;
-            if (f.isValid())
+        //look for a straight within each suit, rather than a flush within
+        //each straight, and keep the highest
+        int top = -1;
+        int suit = -1;
+        for (int s = 0; s < 4; s++)
+        {
+            int t = a.getStraightFlushTop(s);
+            if (t > top)
             {
-                flushHands.add(f.getValidHand());
+                top = t;
+                suit = s;
             }
         }
+        if (top < 0) return null;
         
-        //return the largest of the flush hands
-        if (flushHands != null && flushHands.size() > 0)
-        {
-            return flushHands.get(flushHands.size() - 1);
-        }
-        
-        return null;
+        Hand h = new Hand();
+        this.addStraight(h, top, suitCards(suit));
+        return h;
     }
     
     @Override
     public int compareTo(StraightFlush t) 
     {
-        //first handle aces because they're sorted to the bottom of the hand
-        int index = 0;
-        while (index < this.getNumCards())
-        {
-            if (this.get(index).getRank() == 1 && t.get(index).getRank() == 1)
-            {
-                index++;
-            }
-            else if (this.get(index).getRank() == 1 && t.get(index).getRank() != 1)
-            {
-                return 1;
-            }
-            else if (this.get(index).getRank() != 1 && t.get(index).getRank() == 1)
-            {
-                return -1;
-            }
-            else
-            {
-                //neither hand has an ace at index
-                break;
-            }
-        }
-        
-        //then continue on handling high cards
-        index = this.getNumCards() - 1;
-        while (this.get(index).getRank() == t.get(index).getRank())
-        {
-            index--;
-            if (index < 0) return 0;
-        }
-        
-        if (this.get(index).getRank() < t.get(index).getRank())
-        {
-            return - 1;
-        }
-        else
-        {
-            return 1;
-        }
+        //scores pack the ranks that break ties, so the higher score wins
+        return Integer.compare(this.getScore(), t.getScore());
     }
 }
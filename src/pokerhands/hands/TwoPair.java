@@ -1,9 +1,7 @@
 package pokerhands.hands;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import pokerhands.Card;
 
 /**
  * Represents a hand that contains two pairs of cards.
@@ -17,15 +15,15 @@ public class TwoPair extends Hand implements Comparable<TwoPair>
     
     public TwoPair(Hand h)
     {
-        this.cards = h.getCards();
+        this.setCards(h);
         h = this.getValidHand();
         if (h != null)
         {
-            this.cards = h.getCards();
+            this.setCards(h);
         }
         else
         {
-            this.cards = null;
+            this.clear();
         }
     }
     
@@ -37,82 +35,39 @@ public class TwoPair extends Hand implements Comparable<TwoPair>
     @Override
     public Hand getValidHand()
     {
-        if (cards.size() < 5) return null;
+        if (this.getNumCards() < 5) return null;
         
-        //map each rank to the cards of that rank
-        HashMap<Integer, List<Card>> rankBuckets = bucketCardsByRank(this.cards);
+        //the counts of each rank are shared with every other type of hand
+        //made from the same cards
+        HandAnalysis a = this.getAnalysis();
         
         Hand h = new Hand();
         int pairs = 0;
         
-        //aces are high, so if at least one pair exists, add them first
-        if (rankBuckets.get(1) != null)
+        //take the highest pairs, aces first
+        for (int r = 12; r >= 0 && pairs < 2; r--)
         {
-            if (rankBuckets.get(1).size() >= 4)
+            if (a.getRankCount(r) < 2) continue;
+            
+            if (r == 12 && a.getRankCount(r) == 4)
             {
                 //two pair of aces
-                for (int i = 0; i < 4; i++)
-                {
-                    h.add(rankBuckets.get(1).remove(0));
-                }
-                if (!pairRankings.contains(1)) pairRankings.add(1);
+                this.addCardsOfRank(h, r, 4);
                 pairs = 2;
             }
-            else if (rankBuckets.get(1).size() >= 2)
-            {
-                //one pair of aces
-                for (int i = 0; i < 2; i++)
-                {
-                    h.add(rankBuckets.get(1).remove(0));
-                }
-                if (!pairRankings.contains(1)) pairRankings.add(1);
-                pairs = 1;
-            }
-            if (rankBuckets.get(1).isEmpty()) rankBuckets.remove(1);
-        }
-        
-        //if we didn't get two pairs of aces, take the next highest pair
-        if (pairs < 2)
-        {
-            for (int r = 13; r > 1; r--)
+            else
             {
-                if (rankBuckets.get(r) != null && rankBuckets.get(r).size() >= 2)
-                {
-                    for (int i = 0; i < 2; i++)
-                    {
-                        h.add(rankBuckets.get(r).remove(0));
-                    }
-                    if (!pairRankings.contains(r)) pairRankings.add(r);
-                    if (rankBuckets.get(r).isEmpty()) rankBuckets.remove(r);
-                    pairs++;
-                    break;
-                }
+                this.addCardsOfRank(h, r, 2);
+                pairs++;
             }
+            if (!pairRankings.contains(toCardRank(r))) pairRankings.add(toCardRank(r));
         }
         
         //if we still didn't get two pairs, we aren't going to
         if (pairs < 2) return null;
         
         //now pad the hand with high cards - aces first
-        if (rankBuckets.get(1) != null)
-        {
-            for (Card c : rankBuckets.get(1))
-            {
-                if (h.getNumCards() == 5) break;
-                h.add(c);
-            }
-        }
-        for (int r = 13; r > 1; r--)
-        {
-            if (rankBuckets.get(r) != null)
-            {
-                for (Card c : rankBuckets.get(r))
-                {
-                    if (h.getNumCards() == 5) break;
-                    h.add(c);
-                }
-            }
-        }
+        this.addKickers(h);
         
         //return null if we couldn't build a valid hand
         if (h.getNumCards() != 5) return null;
@@ -122,76 +77,7 @@ public class TwoPair extends Hand implements Comparable<TwoPair>
     @Override
     public int compareTo(TwoPair t) 
     {
-        //special handling for aces
-        int myRank = this.pairRankings.get(0);
-        int otherRank = t.getPairRankings().get(0);
-        if (myRank == 1) myRank = 14;
-        if (otherRank == 1) otherRank = 14;
-        
-        //compare the first pair
-        if (myRank < otherRank)
-        {
-            return -1;
-        }
-        else if (myRank > otherRank)
-        {
-            return 1;
-        }
-        
-        
-        //special handling for aces
-        myRank = this.pairRankings.get(1);
-        otherRank = t.getPairRankings().get(1);
-        if (myRank == 1) myRank = 14;
-        if (otherRank == 1) otherRank = 14;
-        
-        //if they're the same, compare the second
-        if (myRank < otherRank)
-        {
-            return -1;
-        }
-        else if (myRank > otherRank)
-        {
-            return 1;
-        }
-        
-        //start comparing high cards
-        int count1 = this.cards.size() - 1;
-        int count2 = t.getNumCards() - 1;
-        while (count1 >= 0 && count2 >= 0)
-        {
-            if (this.pairRankings.contains(this.cards.get(count1).getRank()))
-            {
-                count1 -= 2;
-            }
-            if (t.getPairRankings().contains(t.get(count2).getRank()))
-            {
-                count2 -= 2;
-            }
-
-            if (count1 < 0 || count2 < 0) break;
-
-            //special handling for aces
-            myRank = this.cards.get(count1).getRank();
-            otherRank = t.get(count2).getRank();
-            if (myRank == 1) myRank = 14;
-            if (otherRank == 1) otherRank = 14;
-        
-            if (myRank < otherRank)
-            {
-                return -1;
-            }
-            else if (myRank > otherRank)
-            {
-                return 1;
-            }
-            else
-            {
-                count1--;
-                count2--;
-            }
-        }
-
-        return 0;
+        //scores pack the ranks that break ties, so the higher score wins
+        return Integer.compare(this.getScore(), t.getScore());
     }
 }
@@ -0,0 +1,47 @@
+package pokerhands.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for picking the winners of a showdown from the
+ * scores of its players. Scoring the hands is an EvaluateEvent of its own,
+ * which falls inside this event when the hands are scored as they are
+ * compared. A table simulation settles many showdowns in a row, so it
+ * emits one event for each slice of deals it plays, which covers dealing
+ * and scoring them too.
+ * Like every pokerhands event it is off by default, see EvaluateEvent.
+ * @author jfritz
+ */
+@Name("pokerhands.Compare")
+@Label("Compare")
+@Category("Pokerhands")
+@Description("The winners of a showdown picked out")
+@Enabled(false)
+@StackTrace(false)
+public final class CompareEvent extends Event
+{
+    @Label("Hand Size")
+    @Description("The number of cards each player's hand was made from")
+    public int handSize;
+    
+    @Label("Players")
+    public int players;
+    
+    @Label("Showdowns")
+    @Description("The number of showdowns settled, which is more than one for a slice of a table simulation")
+    public long showdowns = 1;
+    
+    @Label("Winners")
+    @Description("The number of players who won or shared the pot, over every showdown settled")
+    public long winners;
+    
+    @Label("Category")
+    @Description("The type of the winning hand")
+    public String category;
+}
@@ -0,0 +1,30 @@
+package pokerhands.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for one shuffle of a deck. A deck only knows how
+ * many cards it shuffles, not how they will be split between the players
+ * and the board, and nothing has been scored yet, so unlike the other
+ * events this one carries no hand size, player count or category.
+ * Like every pokerhands event it is off by default, see EvaluateEvent.
+ * @author jfritz
+ */
+@Name("pokerhands.Deal")
+@Label("Deal")
+@Category("Pokerhands")
+@Description("A deck shuffled ready to deal")
+@Enabled(false)
+@StackTrace(false)
+public final class DealEvent extends Event
+{
+    @Label("Cards")
+    @Description("The number of cards shuffled, which is the most that can be dealt")
+    public int cards;
+}
@@ -0,0 +1,78 @@
+package pokerhands.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import pokerhands.Pokerhands.Type;
+import pokerhands.eval.HandScore;
+
+/**
+ * A flight recorder event for one call that scores hands: a single hand, the
+ * hands of a showdown, a batch, or every hand of an equity calculation or a
+ * table simulation.
+ *
+ * The pokerhands events are off by default, so the flight recorder skips
+ * them even while it is recording, and a disabled event costs little more
+ * than the check for it. Turn them on for a recording with
+ * <pre>
+ *     -XX:StartFlightRecording:+pokerhands.Deal#enabled=true,+pokerhands.Evaluate#enabled=true,+pokerhands.Compare#enabled=true
+ * </pre>
+ * or with the same settings in a .jfc file.
+ * @author jfritz
+ */
+@Name("pokerhands.Evaluate")
+@Label("Evaluate")
+@Category("Pokerhands")
+@Description("Hands scored in one call")
+@Enabled(false)
+@StackTrace(false)
+public final class EvaluateEvent extends Event
+{
+    @Label("Hand Size")
+    @Description("The number of cards in each hand, or 0 if the hands were of different sizes")
+    public int handSize;
+    
+    @Label("Hands")
+    @Description("The number of hands scored, which for a showdown is the number of players")
+    public long hands;
+    
+    @Label("Players")
+    @Description("The number of players whose hands were scored against each other, or 0 if the hands were not dealt to a table, as for a single hand or a batch")
+    public int players;
+    
+    @Label("Category")
+    @Description("The best type of hand among those scored")
+    public String category;
+    
+    /**
+     * Fills in the number of hands and the best type among them.
+     * @param scores the packed scores of the hands
+     * @param numHands the number of scores, from the start
+     */
+    public void setScores(int[] scores, int numHands)
+    {
+        int best = -1;
+        for (int i = 0; i < numHands; i++)
+        {
+            best = Math.max(best, scores[i]);
+        }
+        this.setHands(numHands, best < 0 ? null : HandScore.getType(best));
+    }
+    
+    /**
+     * Fills in the number of hands and the best type among them, for a call
+     * that scored too many hands to keep every score.
+     * @param numHands the number of hands scored
+     * @param best the best type of hand among them, or null if there were
+     * none
+     */
+    public void setHands(long numHands, Type best)
+    {
+        this.hands = numHands;
+        this.category = best == null ? null : best.name();
+    }
+}
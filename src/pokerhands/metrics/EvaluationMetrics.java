@@ -0,0 +1,274 @@
+package pokerhands.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import pokerhands.Pokerhands.Type;
+import pokerhands.eval.HandScore;
+
+/**
+ * Counts and times the three phases of play, dealing, evaluating and
+ * comparing hands, and the types of hand that evaluation produces. Equity
+ * calculations and table simulations are timed as a whole in a fourth
+ * phase, while the deals, hands and players inside them are only counted
+ * in the other three.
+ *
+ * Metrics are off unless the JVM is started with -Dpokerhands.metrics=true.
+ * The flag is read once into a static final field, so while it is off the
+ * checks in the dealing and scoring code are compiled away and cost
+ * nothing. While it is on, every call into a phase reads the clock and the
+ * thread's allocation counter twice, which is a few tens of nanoseconds, so
+ * it is best left off for simulations that score single hands in a tight
+ * loop.
+ *
+ * When metrics are on, each phase is registered with the platform MBean
+ * server as pokerhands:type=PhaseMetrics,name=deal, evaluate, compare or
+ * calculate, and the type counts and a text snapshot of everything as
+ * pokerhands:type=EvaluationMetrics.
+ * @author jfritz
+ */
+public final class EvaluationMetrics implements EvaluationMetricsMXBean
+{
+    /**
+     * The system property that turns metrics on.
+     */
+    public static final String ENABLED_PROPERTY = "pokerhands.metrics";
+    
+    /**
+     * True if metrics are being kept. Code that records metrics should check
+     * this first, so that it costs nothing while they are off.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+    
+    /**
+     * Shuffling decks. Each shuffle counts as one deal, and so does each
+     * board an equity calculation deals out.
+     */
+    public static final PhaseMetrics DEAL = new PhaseMetrics("deal");
+    
+    /**
+     * Scoring hands. Each hand scored counts once, so the rate of this phase
+     * is the number of evaluations per second.
+     */
+    public static final PhaseMetrics EVALUATE = new PhaseMetrics("evaluate");
+    
+    /**
+     * Picking the winners of a showdown. Each player compared counts once.
+     */
+    public static final PhaseMetrics COMPARE = new PhaseMetrics("compare");
+    
+    /**
+     * Equity calculations and table simulations, each timed as one call.
+     * Each hand scored counts once. The work runs on pool threads, so its
+     * allocation is not measured.
+     */
+    public static final PhaseMetrics CALCULATE = new PhaseMetrics("calculate");
+    
+    private static final Type[] TYPES = Type.values();
+    
+    //the number of hands evaluated of each type
+    private static final LongAdder[] TYPE_COUNTS = new LongAdder[TYPES.length];
+    
+    //null if metrics are off or the JVM cannot count the bytes each thread
+    //allocates
+    private static final com.sun.management.ThreadMXBean THREADS = ENABLED ? allocationCounter() : null;
+    
+    static
+    {
+        for (int t = 0; t < TYPE_COUNTS.length; t++)
+        {
+            TYPE_COUNTS[t] = new LongAdder();
+        }
+        
+        if (ENABLED)
+        {
+            register();
+        }
+    }
+    
+    private EvaluationMetrics()
+    {
+    }
+    
+    private static com.sun.management.ThreadMXBean allocationCounter()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled())
+            {
+                return counter;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Registers every phase and the type counts with the platform MBean
+     * server. This happens on its own when metrics are turned on, and only
+     * needs calling again if they were unregistered.
+     */
+    public static synchronized void register()
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            for (PhaseMetrics phase : new PhaseMetrics[] {DEAL, EVALUATE, COMPARE, CALCULATE})
+            {
+                ObjectName name = new ObjectName("pokerhands:type=PhaseMetrics,name=" + phase.getName());
+                if (!server.isRegistered(name)) server.registerMBean(phase, name);
+            }
+            ObjectName name = new ObjectName("pokerhands:type=EvaluationMetrics");
+            if (!server.isRegistered(name)) server.registerMBean(new EvaluationMetrics(), name);
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("The metrics could not be registered", e);
+        }
+    }
+    
+    /**
+     * Returns the number of bytes the current thread has allocated so far,
+     * to pass to PhaseMetrics.record.
+     * @return the bytes allocated, or -1 if the JVM cannot count them
+     */
+    public static long getAllocatedBytes()
+    {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+    
+    /**
+     * Counts the type of an evaluated hand.
+     * @param score the packed score of the hand
+     */
+    public static void countType(int score)
+    {
+        TYPE_COUNTS[HandScore.getType(score).ordinal()].increment();
+    }
+    
+    /**
+     * Counts the type of every evaluated hand in a batch.
+     * @param scores the packed scores of the hands
+     * @param numHands the number of scores to count, from the start
+     */
+    public static void countTypes(int[] scores, int numHands)
+    {
+        if (numHands <= TYPES.length)
+        {
+            for (int i = 0; i < numHands; i++)
+            {
+                countType(scores[i]);
+            }
+            return;
+        }
+        
+        //a large batch is counted locally first, so the shared counters are
+        //only touched once per type
+        long[] counts = new long[TYPES.length];
+        for (int i = 0; i < numHands; i++)
+        {
+            counts[HandScore.getType(scores[i]).ordinal()]++;
+        }
+        addTypeCounts(counts);
+    }
+    
+    /**
+     * Adds counts of evaluated hands that were kept locally, for code that
+     * scores too many hands in a loop to count each one here.
+     * @param counts the number of hands of each type, indexed by the
+     * ordinal of the type
+     */
+    public static void addTypeCounts(long[] counts)
+    {
+        for (int t = 0; t < counts.length; t++)
+        {
+            if (counts[t] != 0) TYPE_COUNTS[t].add(counts[t]);
+        }
+    }
+    
+    /**
+     * Returns the number of hands evaluated of the specified type.
+     * @param t a type of hand
+     * @return the number of hands of that type
+     */
+    public static long getTypeCount(Type t)
+    {
+        return TYPE_COUNTS[t.ordinal()].sum();
+    }
+    
+    /**
+     * Writes every phase and the type counts out as text, one line each.
+     * @return a snapshot of the metrics
+     */
+    public static String snapshot()
+    {
+        StringBuilder sb = new StringBuilder();
+        if (!ENABLED)
+        {
+            sb.append(String.format("Metrics are off, start the JVM with -D%s=true to keep them%n", ENABLED_PROPERTY));
+        }
+        sb.append(String.format("%s%n%s%n%s%n%s%n", DEAL, EVALUATE, COMPARE, CALCULATE));
+        
+        long total = 0;
+        for (LongAdder count : TYPE_COUNTS)
+        {
+            total += count.sum();
+        }
+        for (int t = TYPES.length - 1; t >= 0; t--)
+        {
+            long n = TYPE_COUNTS[t].sum();
+            sb.append(String.format("%s: %d (%.3f%%)%n", TYPES[t].name(), n, total == 0 ? 0 : 100.0 * n / total));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Clears every phase and the type counts.
+     */
+    public static void resetAll()
+    {
+        DEAL.reset();
+        EVALUATE.reset();
+        COMPARE.reset();
+        CALCULATE.reset();
+        for (LongAdder count : TYPE_COUNTS)
+        {
+            count.reset();
+        }
+    }
+    
+    @Override
+    public boolean isEnabled()
+    {
+        return ENABLED;
+    }
+    
+    @Override
+    public Map<String, Long> getTypeCounts()
+    {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Type t : TYPES)
+        {
+            counts.put(t.name(), TYPE_COUNTS[t.ordinal()].sum());
+        }
+        return counts;
+    }
+    
+    @Override
+    public String getSnapshot()
+    {
+        return snapshot();
+    }
+    
+    @Override
+    public void reset()
+    {
+        resetAll();
+    }
+}
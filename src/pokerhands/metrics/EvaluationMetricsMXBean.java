@@ -0,0 +1,23 @@
+package pokerhands.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the counts kept across every phase, as seen
+ * through JMX.
+ * @author jfritz
+ */
+public interface EvaluationMetricsMXBean
+{
+    boolean isEnabled();
+    
+    /**
+     * Returns the number of hands evaluated of each type.
+     * @return the count of each type, keyed by the name of the type
+     */
+    Map<String, Long> getTypeCounts();
+    
+    String getSnapshot();
+    
+    void reset();
+}
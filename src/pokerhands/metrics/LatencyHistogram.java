@@ -0,0 +1,149 @@
+package pokerhands.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds that any number of threads can
+ * record into at once without locking.
+ *
+ * Like an HDR histogram, the buckets are laid out in powers of two, each
+ * split into 32 equal sub-buckets, so every bucket is within about 3% of
+ * the values it holds whether they are a few nanoseconds or several
+ * minutes, and the whole range of a long takes fewer than 2,000 counters.
+ * Recording a value is one increment of an atomic counter. Percentiles are
+ * worked out from the counters when they are read, and report the highest
+ * value of the bucket they fall in.
+ * @author jfritz
+ */
+public class LatencyHistogram
+{
+    //each power of two is split into 1 << SUB_BUCKET_BITS buckets
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    //enough buckets for the largest positive long
+    private static final int NUM_BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+    
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * Records a latency. A negative value, which System.nanoTime can give
+     * if the clock steps back, is recorded as 0.
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(nanos, 0);
+        counts.getAndIncrement(bucket(value));
+        total.increment();
+        sum.add(value);
+        
+        //a value below the maximum, which is nearly every one, skips the CAS
+        if (value > max.get())
+        {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+    
+    /**
+     * Returns the bucket that holds a value. Values below SUB_BUCKETS have a
+     * bucket each, and every power of two above that is split into
+     * SUB_BUCKETS buckets by the bits below its highest bit.
+     */
+    static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS) return (int)value;
+        
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * shift + (int)(value >>> shift);
+    }
+    
+    /**
+     * Returns the highest value that falls in a bucket.
+     */
+    static long highestValue(int bucket)
+    {
+        if (bucket < SUB_BUCKETS) return bucket;
+        
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long)(bucket - SUB_BUCKETS * shift) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+    
+    public long getCount()
+    {
+        return total.sum();
+    }
+    
+    public long getMax()
+    {
+        return max.get();
+    }
+    
+    /**
+     * Returns the mean of every value recorded.
+     * @return the mean latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMean()
+    {
+        long n = total.sum();
+        return n == 0 ? 0 : (double)sum.sum() / n;
+    }
+    
+    /**
+     * Returns the latency that the specified percentage of values are at or
+     * below, to within the width of a bucket.
+     * @param percentile a percentage from 0 to 100
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+        {
+            throw new IllegalArgumentException("A percentile must be from 0 to 100, not " + percentile);
+        }
+        
+        //the counters are read one at a time while others may be recording,
+        //so the total is taken from the same pass
+        long[] snapshot = new long[NUM_BUCKETS];
+        long n = 0;
+        for (int b = 0; b < NUM_BUCKETS; b++)
+        {
+            snapshot[b] = counts.get(b);
+            n += snapshot[b];
+        }
+        if (n == 0) return 0;
+        
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int b = 0; b < NUM_BUCKETS; b++)
+        {
+            seen += snapshot[b];
+            if (seen >= rank)
+            {
+                return Math.min(highestValue(b), max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    /**
+     * Clears every count. Values recorded while the histogram is being reset
+     * may or may not survive it.
+     */
+    public void reset()
+    {
+        for (int b = 0; b < NUM_BUCKETS; b++)
+        {
+            counts.set(b, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
@@ -0,0 +1,195 @@
+package pokerhands.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counts and latencies of one phase of play: dealing, evaluating or
+ * comparing hands.
+ *
+ * Every call into the phase is timed on its own, and also counts how many
+ * things it handled, so a batch of a thousand hands is one call, one
+ * latency and a count of a thousand. Work done inside a larger job that is
+ * timed in a phase of its own, such as the hands of an equity calculation,
+ * is only counted, so the latencies stay those of single calls. The
+ * counters are LongAdders and the latencies go into a LatencyHistogram, so
+ * threads never wait on each other to record.
+ * @author jfritz
+ */
+public class PhaseMetrics implements PhaseMetricsMXBean
+{
+    //the shortest time the rate is worked out over, so that readers polling
+    //faster than this all see the same rate
+    private static final long RATE_WINDOW_NANOS = 1000000000L;
+    
+    private final String name;
+    
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    
+    //the part of the count whose allocation was measured
+    private final LongAdder measuredCount = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    
+    //the last sample the rate was worked out from, guarded by this
+    private long sampleNanos = System.nanoTime();
+    private long sampleCount = 0;
+    private double rate = Double.NaN;
+    
+    PhaseMetrics(String name)
+    {
+        this.name = name;
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    /**
+     * Records one call into the phase.
+     * @param startNanos the value of System.nanoTime when the call started
+     * @param startBytes the value of EvaluationMetrics.getAllocatedBytes
+     * when the call started, or -1 if the call's allocation should not be
+     * measured, as for work done on other threads
+     * @param n the number of hands, players or deals the call handled
+     */
+    public void record(long startNanos, long startBytes, long n)
+    {
+        latency.record(System.nanoTime() - startNanos);
+        if (startBytes >= 0)
+        {
+            allocatedBytes.add(EvaluationMetrics.getAllocatedBytes() - startBytes);
+            measuredCount.add(n);
+        }
+        calls.increment();
+        count.add(n);
+    }
+    
+    /**
+     * Counts hands, players or deals handled inside a larger job that is
+     * timed in a phase of its own. They add to the count and the rate, but
+     * not to the calls, the latencies or the allocation.
+     * @param n the number of hands, players or deals handled
+     */
+    public void count(long n)
+    {
+        count.add(n);
+    }
+    
+    @Override
+    public long getCalls()
+    {
+        return calls.sum();
+    }
+    
+    /**
+     * Returns the number of hands evaluated, of players compared or of deals
+     * dealt.
+     * @return the count of the phase
+     */
+    @Override
+    public long getCount()
+    {
+        return count.sum();
+    }
+    
+    /**
+     * Returns the rate over at least the last second, or since the previous
+     * sample if that was longer ago. Until a second has passed since the
+     * metrics were started or reset, the rate is over however long it has
+     * been.
+     * @return the count per second
+     */
+    @Override
+    public synchronized double getCountPerSecond()
+    {
+        long now = System.nanoTime();
+        long n = count.sum();
+        if (now - sampleNanos >= RATE_WINDOW_NANOS)
+        {
+            rate = (n - sampleCount) * 1e9 / (now - sampleNanos);
+            sampleNanos = now;
+            sampleCount = n;
+        }
+        else if (Double.isNaN(rate))
+        {
+            return now == sampleNanos ? 0 : (n - sampleCount) * 1e9 / (now - sampleNanos);
+        }
+        return rate;
+    }
+    
+    @Override
+    public double getMeanNanos()
+    {
+        return latency.getMean();
+    }
+    
+    @Override
+    public long getMedianNanos()
+    {
+        return latency.getPercentile(50);
+    }
+    
+    @Override
+    public long getP99Nanos()
+    {
+        return latency.getPercentile(99);
+    }
+    
+    @Override
+    public long getP999Nanos()
+    {
+        return latency.getPercentile(99.9);
+    }
+    
+    @Override
+    public long getMaxNanos()
+    {
+        return latency.getMax();
+    }
+    
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+    
+    /**
+     * Returns the bytes allocated on the recording threads during the phase,
+     * divided by the count of the calls whose allocation was measured.
+     * @return the bytes allocated per hand, player or deal, or 0 if no
+     * allocation was measured, because the JVM cannot or because the work
+     * ran on other threads
+     */
+    @Override
+    public double getAllocatedBytesPerCount()
+    {
+        long n = measuredCount.sum();
+        return n == 0 ? 0 : (double)allocatedBytes.sum() / n;
+    }
+    
+    @Override
+    public void reset()
+    {
+        calls.reset();
+        count.reset();
+        allocatedBytes.reset();
+        measuredCount.reset();
+        latency.reset();
+        synchronized (this)
+        {
+            sampleNanos = System.nanoTime();
+            sampleCount = 0;
+            rate = Double.NaN;
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return String.format("%s: %d calls, %d counted, %.0f per second, latency mean %.0f ns, p50 %d ns, p99 %d ns, p99.9 %d ns, max %d ns, %.1f bytes allocated each",
+                name, this.getCalls(), this.getCount(), this.getCountPerSecond(), this.getMeanNanos(),
+                this.getMedianNanos(), this.getP99Nanos(), this.getP999Nanos(),
+                this.getMaxNanos(), this.getAllocatedBytesPerCount());
+    }
+}
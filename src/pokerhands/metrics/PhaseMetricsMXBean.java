@@ -0,0 +1,29 @@
+package pokerhands.metrics;
+
+/**
+ * The management interface of one phase of play, as seen through JMX.
+ * Latencies are per call, in nanoseconds.
+ * @author jfritz
+ */
+public interface PhaseMetricsMXBean
+{
+    long getCalls();
+    
+    long getCount();
+    
+    double getCountPerSecond();
+    
+    double getMeanNanos();
+    
+    long getMedianNanos();
+    
+    long getP99Nanos();
+    
+    long getP999Nanos();
+    
+    long getMaxNanos();
+    
+    double getAllocatedBytesPerCount();
+    
+    void reset();
+}
@@ -0,0 +1,247 @@
+package pokerhands.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import pokerhands.eval.BatchEvaluator;
+
+/**
+ * Gathers hands to evaluate from many callers into batches, and scores each
+ * batch on a fixed pool of worker threads.
+ *
+ * Callers queue their hands and get a future back. A single dispatcher
+ * thread takes everything that is waiting, up to a limit on the number of
+ * hands, and hands it to a worker as one batch. Only a fixed number of
+ * batches may be in flight at once, so while every worker is busy the
+ * dispatcher waits and requests pile up in the queue, which makes the next
+ * batch bigger. When the queue itself is full new requests are turned away
+ * straight away rather than left to wait.
+ * @author jfritz
+ */
+public class EvaluationBatcher implements AutoCloseable
+{
+    //a hand waiting to be scored
+    private static class Request
+    {
+        final long[] masks;
+        final CompletableFuture<int[]> future = new CompletableFuture<>();
+        
+        Request(long[] masks)
+        {
+            this.masks = masks;
+        }
+    }
+    
+    private final BlockingQueue<Request> queue;
+    private final int maxBatchHands;
+    
+    private final ExecutorService workers;
+    
+    //one permit per batch that may be in flight
+    private final Semaphore inFlight;
+    
+    private final Thread dispatcher;
+    private volatile boolean closed = false;
+    
+    /**
+     * Creates a batcher and starts its dispatcher.
+     * @param numWorkers the number of threads that score batches
+     * @param maxBatchHands the most hands to gather into one batch, although
+     * a single request larger than this is still scored as one batch
+     * @param maxQueueDepth the most requests that may wait to be batched
+     */
+    public EvaluationBatcher(int numWorkers, int maxBatchHands, int maxQueueDepth)
+    {
+        if (numWorkers < 1 || maxBatchHands < 1 || maxQueueDepth < 1)
+        {
+            throw new IllegalArgumentException("A batcher needs at least one worker, one hand per batch and room to queue one request");
+        }
+        
+        this.queue = new ArrayBlockingQueue<>(maxQueueDepth);
+        this.maxBatchHands = maxBatchHands;
+        this.workers = Executors.newFixedThreadPool(numWorkers, r -> {
+            Thread t = new Thread(r, "pokerhands-evaluator");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        //a second batch per worker can be gathered while the first is scored
+        this.inFlight = new Semaphore(2 * numWorkers);
+        
+        this.dispatcher = new Thread(this::dispatch, "pokerhands-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+    
+    /**
+     * Queues hands to be scored.
+     * @param masks the hands to score, as card masks of five to seven cards
+     * @return a future that receives the score of each hand, in order
+     * @throws RejectedExecutionException if the queue is full or the batcher
+     * is closed
+     */
+    public CompletableFuture<int[]> submit(long[] masks)
+    {
+        for (long m : masks)
+        {
+            int numCards = Long.bitCount(m);
+            if (numCards < 5 || numCards > 7)
+            {
+                throw new IllegalArgumentException("Only hands of five to seven cards can be evaluated");
+            }
+        }
+        if (closed)
+        {
+            throw new RejectedExecutionException("The batcher is closed");
+        }
+        
+        Request r = new Request(masks);
+        if (!queue.offer(r))
+        {
+            throw new RejectedExecutionException("Too many requests are waiting");
+        }
+        
+        //a request that slipped in after close() emptied the queue would
+        //never be scored
+        if (closed && !dispatcher.isAlive() && queue.remove(r))
+        {
+            throw new RejectedExecutionException("The batcher is closed");
+        }
+        return r.future;
+    }
+    
+    /**
+     * Returns the number of requests waiting to be batched.
+     * @return the depth of the queue
+     */
+    public int getQueueDepth()
+    {
+        return queue.size();
+    }
+    
+    private void dispatch()
+    {
+        List<Request> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty())
+        {
+            try
+            {
+                inFlight.acquire();
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                {
+                    inFlight.release();
+                    continue;
+                }
+                
+                //take whatever else is already waiting, without waiting for
+                //more to arrive
+                batch.add(first);
+                int numHands = first.masks.length;
+                Request next;
+                while (numHands < maxBatchHands && (next = queue.peek()) != null
+                        && numHands + next.masks.length <= maxBatchHands)
+                {
+                    batch.add(queue.poll());
+                    numHands += next.masks.length;
+                }
+                
+                Request[] requests = batch.toArray(new Request[0]);
+                int total = numHands;
+                batch.clear();
+                workers.execute(() -> {
+                    try
+                    {
+                        evaluate(requests, total);
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                });
+            }
+            catch (InterruptedException e)
+            {
+                //an interrupt stops the dispatcher without emptying the queue
+                break;
+            }
+        }
+        this.rejectWaiting();
+    }
+    
+    /**
+     * Turns away every request that is still waiting.
+     */
+    private void rejectWaiting()
+    {
+        Request r;
+        while ((r = queue.poll()) != null)
+        {
+            r.future.completeExceptionally(new RejectedExecutionException("The batcher is closed"));
+        }
+    }
+    
+    /**
+     * Scores every request of a batch in one pass and hands each caller its
+     * share of the scores.
+     */
+    private static void evaluate(Request[] requests, int numHands)
+    {
+        try
+        {
+            long[] masks = new long[numHands];
+            int n = 0;
+            for (Request r : requests)
+            {
+                System.arraycopy(r.masks, 0, masks, n, r.masks.length);
+                n += r.masks.length;
+            }
+            
+            int[] scores = new int[numHands];
+            BatchEvaluator.evaluate(masks, scores);
+            
+            n = 0;
+            for (Request r : requests)
+            {
+                r.future.complete(Arrays.copyOfRange(scores, n, n + r.masks.length));
+                n += r.masks.length;
+            }
+        }
+        catch (RuntimeException e)
+        {
+            for (Request r : requests)
+            {
+                r.future.completeExceptionally(e);
+            }
+        }
+    }
+    
+    /**
+     * Stops taking requests, scores those already queued and shuts the
+     * workers down.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        try
+        {
+            dispatcher.join();
+        }
+        catch (InterruptedException e)
+        {
+            dispatcher.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        this.rejectWaiting();
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,458 @@
+package pokerhands.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import pokerhands.Card;
+import pokerhands.Showdown;
+import pokerhands.eval.HandScore;
+import pokerhands.equity.EquityCalculator;
+import pokerhands.hands.Hand;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * A small HTTP server that scores hands, settles showdowns and works out
+ * equity. Every request and response body is plain text, one item per line,
+ * with cards written as a rank and a suit such as Ah or Tc.
+ * <ul>
+ * <li>POST /evaluate takes one hand of five to seven cards per line, such as
+ * "AhKhQhJhTh9c2d", and returns each hand's score and type, separated by a
+ * tab.</li>
+ * <li>POST /showdown takes one showdown per line: the five board cards, then
+ * each player's hole cards, separated by spaces. It returns the seats of
+ * the winners, starting at 1 and separated by commas, and the winning type,
+ * separated by a tab.</li>
+ * <li>GET /equity?players=AhKh,QsQd&amp;board=2c7d9h&amp;dead=&amp;trials=100000
+ * returns the equity of each player. The board, the dead cards and the
+ * number of trials are optional.</li>
+ * <li>GET /metrics returns a text snapshot of EvaluationMetrics, which are
+ * only kept if the server was started with -Dpokerhands.metrics=true.</li>
+ * </ul>
+ *
+ * Hands from every concurrent /evaluate and /showdown request are gathered
+ * into batches by an EvaluationBatcher. Handlers never wait for the work
+ * they hand off: a handler reads and checks the request, queues its hands
+ * with the batcher, or its equity with the equity pool, and returns, and the
+ * response is written once the work is done. The batcher's queue and the
+ * number of equity requests that may run are therefore the real limits on
+ * the work in progress. When either is reached, requests are answered with
+ * 503 Service Unavailable straight away, so a client under load backs off
+ * instead of piling up behind the server.
+ *
+ * Run this class to start a server:
+ * <pre>
+ *     java pokerhands.server.EvaluationServer [port]
+ * </pre>
+ * @author jfritz
+ */
+public class EvaluationServer implements AutoCloseable
+{
+    public static final int DEFAULT_PORT = 8080;
+    
+    //limits on what a single request may ask for
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final long DEFAULT_TRIALS = 100000;
+    private static final long MAX_TRIALS = 10000000;
+    
+    //the longest a request waits for its batch to be scored
+    private static final long TIMEOUT_SECONDS = 10;
+    
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final EvaluationBatcher batcher;
+    
+    //equity is worked out on its own pool, and only a few requests for it
+    //may run at once
+    private final ForkJoinPool equityPool;
+    private final Semaphore equityPermits;
+    
+    /**
+     * Creates a server on the specified port with one worker per processor.
+     * @param port the port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    public EvaluationServer(int port) throws IOException
+    {
+        this(new InetSocketAddress(port), Runtime.getRuntime().availableProcessors(), 64, 4096, 1024);
+    }
+    
+    /**
+     * Creates a server.
+     * @param address the address to listen on
+     * @param numWorkers the number of threads that score batches and work out
+     * equity
+     * @param numHandlers the number of threads that read requests and write
+     * responses; a request waiting to be scored does not hold one
+     * @param maxBatchHands the most hands to gather into one batch
+     * @param maxQueueDepth the most requests that may wait to be batched,
+     * beyond which requests are answered with 503
+     * @throws IOException if the address cannot be bound
+     */
+    public EvaluationServer(InetSocketAddress address, int numWorkers, int numHandlers, int maxBatchHands, int maxQueueDepth) throws IOException
+    {
+        this.batcher = new EvaluationBatcher(numWorkers, maxBatchHands, maxQueueDepth);
+        this.equityPool = new ForkJoinPool(numWorkers);
+        this.equityPermits = new Semaphore(numWorkers);
+        this.handlers = Executors.newFixedThreadPool(numHandlers);
+        
+        //the backlog only limits the connections the operating system holds
+        //until the server accepts them, not the requests in progress, so it
+        //is left at the system's default
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/evaluate", this::evaluate);
+        server.createContext("/showdown", this::showdown);
+        server.createContext("/equity", this::equity);
+        server.createContext("/metrics", this::metrics);
+        server.setExecutor(handlers);
+    }
+    
+    public void start()
+    {
+        server.start();
+    }
+    
+    /**
+     * Returns the address the server listens on, which holds the port it was
+     * given if it was asked for port 0.
+     * @return the address of the server
+     */
+    public InetSocketAddress getAddress()
+    {
+        return server.getAddress();
+    }
+    
+    /**
+     * Stops the server, waiting up to a second for requests in progress.
+     */
+    @Override
+    public void close()
+    {
+        server.stop(1);
+        batcher.close();
+        equityPool.shutdown();
+        handlers.shutdown();
+    }
+    
+    private void evaluate(HttpExchange exchange)
+    {
+        this.handle(exchange, "POST", () -> {
+            List<String> lines = readLines(exchange);
+            long[] masks = new long[lines.size()];
+            for (int i = 0; i < masks.length; i++)
+            {
+                masks[i] = Card.parseMask(lines.get(i));
+            }
+            
+            return this.score(masks).thenApplyAsync(scores -> {
+                StringBuilder sb = new StringBuilder();
+                for (int score : scores)
+                {
+                    sb.append(score).append('\t').append(HandScore.getType(score).name()).append('\n');
+                }
+                return sb.toString();
+            }, handlers);
+        });
+    }
+    
+    private void showdown(HttpExchange exchange)
+    {
+        this.handle(exchange, "POST", () -> {
+            List<String> lines = readLines(exchange);
+            
+            //every player's hand of every showdown is scored in one request
+            //to the batcher
+            int[] numPlayers = new int[lines.size()];
+            List<Long> hands = new ArrayList<>();
+            for (int i = 0; i < numPlayers.length; i++)
+            {
+                String[] parts = lines.get(i).trim().split("\\s+");
+                long board = Card.parseMask(parts[0]);
+                if (Long.bitCount(board) != 5 || parts.length < 2)
+                {
+                    throw new IllegalArgumentException("A showdown needs a five card board and at least one player: " + lines.get(i));
+                }
+                
+                long used = board;
+                for (int p = 1; p < parts.length; p++)
+                {
+                    long hole = Card.parseMask(parts[p]);
+                    if (Long.bitCount(hole) != 2 || (used & hole) != 0)
+                    {
+                        throw new IllegalArgumentException("Each player must hold two cards that no one else holds: " + lines.get(i));
+                    }
+                    used |= hole;
+                    hands.add(hole | board);
+                }
+                numPlayers[i] = parts.length - 1;
+            }
+            
+            long[] masks = new long[hands.size()];
+            for (int i = 0; i < masks.length; i++)
+            {
+                masks[i] = hands.get(i);
+            }
+            return this.score(masks).thenApplyAsync(scores -> {
+                StringBuilder sb = new StringBuilder();
+                int[] winners = new int[Arrays.stream(numPlayers).max().orElse(0)];
+                int first = 0;
+                for (int n : numPlayers)
+                {
+                    int[] showdown = Arrays.copyOfRange(scores, first, first + n);
+                    int numWinners = Showdown.findWinners(showdown, n, winners);
+                    for (int w = 0; w < numWinners; w++)
+                    {
+                        sb.append(w == 0 ? "" : ",").append(winners[w] + 1);
+                    }
+                    sb.append('\t').append(HandScore.getType(showdown[winners[0]]).name()).append('\n');
+                    first += n;
+                }
+                return sb.toString();
+            }, handlers);
+        });
+    }
+    
+    private void equity(HttpExchange exchange)
+    {
+        this.handle(exchange, "GET", () -> {
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+            
+            String playerList = query.get("players");
+            if (playerList == null)
+            {
+                throw new IllegalArgumentException("No players were given");
+            }
+            List<Hand> players = new ArrayList<>();
+            for (String p : playerList.split(","))
+            {
+                players.add(toHand(Card.parseMask(p)));
+            }
+            Hand board = toHand(Card.parseMask(query.getOrDefault("board", "")));
+            Hand dead = toHand(Card.parseMask(query.getOrDefault("dead", "")));
+            
+            long trials = DEFAULT_TRIALS;
+            if (query.containsKey("trials"))
+            {
+                try
+                {
+                    trials = Long.parseLong(query.get("trials"));
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IllegalArgumentException("Not a number of trials: " + query.get("trials"));
+                }
+            }
+            if (trials < 1 || trials > MAX_TRIALS)
+            {
+                throw new IllegalArgumentException("The number of trials must be from 1 to " + MAX_TRIALS);
+            }
+            
+            EquityCalculator calculator = new EquityCalculator(players, board, dead, equityPool);
+            if (!equityPermits.tryAcquire())
+            {
+                throw new RejectedExecutionException("Too many equity requests are running");
+            }
+            long numTrials = trials;
+            try
+            {
+                return CompletableFuture.supplyAsync(() -> calculator.sample(numTrials).toString() + "\n", equityPool)
+                        .whenComplete((body, failure) -> equityPermits.release());
+            }
+            catch (RejectedExecutionException e)
+            {
+                equityPermits.release();
+                throw e;
+            }
+        });
+    }
+    
+    private void metrics(HttpExchange exchange)
+    {
+        this.handle(exchange, "GET", () -> CompletableFuture.completedFuture(EvaluationMetrics.snapshot()));
+    }
+    
+    /**
+     * Queues hands with the batcher, giving up on them if their batch is not
+     * scored in time.
+     * @throws RejectedExecutionException if the batcher's queue is full
+     */
+    private CompletableFuture<int[]> score(long[] masks)
+    {
+        return batcher.submit(masks).orTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    //the body of a response, which a handler starts working out and which
+    //completes once the batcher or the equity pool is done with it
+    private interface Responder
+    {
+        CompletionStage<String> respond() throws Exception;
+    }
+    
+    /**
+     * Starts answering a request and returns without waiting for the body
+     * of the response, which is written by a handler thread once it is
+     * ready.
+     */
+    private void handle(HttpExchange exchange, String method, Responder responder)
+    {
+        if (!exchange.getRequestMethod().equals(method))
+        {
+            exchange.getResponseHeaders().set("Allow", method);
+            this.finish(exchange, 405, "Use " + method + "\n");
+            return;
+        }
+        
+        try
+        {
+            responder.respond().whenCompleteAsync((body, failure) -> this.answer(exchange, body, failure), handlers);
+        }
+        catch (Exception e)
+        {
+            this.answer(exchange, null, e);
+        }
+    }
+    
+    /**
+     * Answers a request, turning bad input into 400, a server that is too
+     * busy into 503 and anything else into 500.
+     */
+    private void answer(HttpExchange exchange, String body, Throwable failure)
+    {
+        //a stage that failed hands on its cause wrapped in a
+        //CompletionException
+        Throwable e = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (e == null)
+        {
+            this.finish(exchange, 200, body);
+        }
+        else if (e instanceof IllegalArgumentException)
+        {
+            this.finish(exchange, 400, e.getMessage() + "\n");
+        }
+        else if (e instanceof RejectedExecutionException || e instanceof TimeoutException)
+        {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            this.finish(exchange, 503, "The server is busy, try again shortly\n");
+        }
+        else
+        {
+            this.finish(exchange, 500, e + "\n");
+        }
+    }
+    
+    private void finish(HttpExchange exchange, int status, String body)
+    {
+        try
+        {
+            send(exchange, status, body);
+        }
+        catch (IOException e)
+        {
+            //the client has gone, and closing the exchange is all that is
+            //left to do
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+    
+    private static void send(HttpExchange exchange, int status, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Reads the non-empty lines of a request body.
+     */
+    private static List<String> readLines(HttpExchange exchange) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody())
+        {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0)
+            {
+                body.write(buffer, 0, n);
+                if (body.size() > MAX_BODY_BYTES)
+                {
+                    throw new IllegalArgumentException("A request body cannot be larger than " + MAX_BODY_BYTES + " bytes");
+                }
+            }
+        }
+        
+        List<String> lines = new ArrayList<>();
+        for (String line : body.toString(StandardCharsets.UTF_8).split("\n"))
+        {
+            if (!line.isBlank()) lines.add(line.trim());
+        }
+        return lines;
+    }
+    
+    private static Map<String, String> parseQuery(URI uri)
+    {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) return query;
+        
+        for (String pair : raw.split("&"))
+        {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+    
+    private static Hand toHand(long mask)
+    {
+        Hand h = new Hand();
+        for (long m = mask; m != 0; m &= m - 1)
+        {
+            h.add(Card.fromIndex(Long.numberOfTrailingZeros(m)));
+        }
+        return h;
+    }
+    
+    /**
+     * Starts a server.
+     * @param args the port to listen on, if not DEFAULT_PORT
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        EvaluationServer server = new EvaluationServer(port);
+        server.start();
+        System.out.println("Listening on " + server.getAddress());
+    }
+}
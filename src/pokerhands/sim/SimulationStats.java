@@ -0,0 +1,109 @@
+package pokerhands.sim;
+
+import java.util.concurrent.atomic.LongAdder;
+import pokerhands.Pokerhands.Type;
+
+/**
+ * Counts the outcomes of every deal played by a simulation. Tables add to
+ * the counters from many threads at once, so each counter is a LongAdder,
+ * and the counts can be read at any time while the simulation runs.
+ * @author jfritz
+ */
+public class SimulationStats
+{
+    private static final Type[] TYPES = Type.values();
+    
+    private final LongAdder deals = new LongAdder();
+    private final LongAdder splitPots = new LongAdder();
+    
+    //the number of pots won or shared by each seat
+    private final LongAdder[] seatWins;
+    
+    //the number of deals won with each type of hand
+    private final LongAdder[] winningTypes = new LongAdder[TYPES.length];
+    
+    SimulationStats(int playersPerTable)
+    {
+        seatWins = new LongAdder[playersPerTable];
+        for (int s = 0; s < seatWins.length; s++)
+        {
+            seatWins[s] = new LongAdder();
+        }
+        for (int t = 0; t < winningTypes.length; t++)
+        {
+            winningTypes[t] = new LongAdder();
+        }
+    }
+    
+    /**
+     * Adds the counts that one table has gathered since it last reported.
+     */
+    void add(long numDeals, long numSplitPots, long[] wins, long[] types)
+    {
+        deals.add(numDeals);
+        splitPots.add(numSplitPots);
+        for (int s = 0; s < wins.length; s++)
+        {
+            if (wins[s] != 0) seatWins[s].add(wins[s]);
+        }
+        for (int t = 0; t < types.length; t++)
+        {
+            if (types[t] != 0) winningTypes[t].add(types[t]);
+        }
+    }
+    
+    public long getDeals()
+    {
+        return deals.sum();
+    }
+    
+    public long getSplitPots()
+    {
+        return splitPots.sum();
+    }
+    
+    public int getPlayersPerTable()
+    {
+        return seatWins.length;
+    }
+    
+    /**
+     * Returns the number of pots that the specified seat won or shared.
+     * @param seat the seat, starting at 0
+     * @return the number of pots won or shared
+     */
+    public long getWins(int seat)
+    {
+        return seatWins[seat].sum();
+    }
+    
+    /**
+     * Returns the number of deals that were won with the specified type of
+     * hand.
+     * @param t a type of hand
+     * @return the number of deals won with that type
+     */
+    public long getWins(Type t)
+    {
+        return winningTypes[t.ordinal()].sum();
+    }
+    
+    @Override
+    public String toString()
+    {
+        long total = this.getDeals();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d deals, %d split pots%n", total, this.getSplitPots()));
+        for (int t = TYPES.length - 1; t >= 0; t--)
+        {
+            long n = winningTypes[t].sum();
+            if (n == 0) continue;
+            sb.append(String.format("Won with %s: %.3f%%%n", TYPES[t], 100.0 * n / total));
+        }
+        for (int s = 0; s < seatWins.length; s++)
+        {
+            sb.append(String.format("Seat %d: %.3f%%%n", s + 1, 100.0 * seatWins[s].sum() / total));
+        }
+        return sb.toString().trim();
+    }
+}
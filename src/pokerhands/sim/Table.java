@@ -0,0 +1,153 @@
+package pokerhands.sim;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+import pokerhands.Deck;
+import pokerhands.Game;
+import pokerhands.Pokerhands.Type;
+import pokerhands.Showdown;
+import pokerhands.eval.HandScore;
+import pokerhands.metrics.CompareEvent;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * One table of a simulation. A table owns its deck, every array it deals
+ * into and the scorer it settles showdowns with, so playing a deal of any
+ * game allocates nothing, and a table is only ever played by one thread at
+ * a time.
+ *
+ * Outcomes are counted locally and handed to the shared counters once per
+ * slice of deals, rather than once per deal. A table records no metrics of
+ * its own, not even for shuffling its deck, as the simulation counts the
+ * deals, hands and players of the whole run at once, and it emits one
+ * flight recorder event for each slice rather than for each deal.
+ * @author jfritz
+ */
+class Table
+{
+    private final Game game;
+    private final Game.Scorer scorer;
+    private final Deck deck;
+    
+    //the number of cards dealt in each deal
+    private final int numCards;
+    
+    private final long[] players;
+    private final int[] scores;
+    private final int[] winners;
+    
+    //deals left to play
+    private long dealsLeft;
+    
+    //counts since the last report
+    private long deals = 0;
+    private long splitPots = 0;
+    private final long[] wins;
+    private final long[] types = new long[Type.values().length];
+    
+    //the number of hands scored of each type over every deal, only counted
+    //while metrics are on
+    private final long[] handTypes = new long[Type.values().length];
+    
+    Table(Game game, int numPlayers, long numDeals, RandomGenerator random)
+    {
+        this.game = game;
+        this.scorer = game.newScorer();
+        this.deck = new Deck(random, false);
+        this.numCards = numPlayers * game.getNumHoleCards() + 5;
+        this.players = new long[numPlayers];
+        this.scores = new int[numPlayers];
+        this.winners = new int[numPlayers];
+        this.wins = new long[numPlayers];
+        this.dealsLeft = numDeals;
+    }
+    
+    /**
+     * Plays up to the specified number of deals and reports them.
+     * @return true if the table has deals left to play
+     */
+    boolean play(int maxDeals, SimulationStats stats)
+    {
+        //one event covers the whole slice, as creating one for every deal
+        //would be the only thing a deal allocates
+        CompareEvent event = new CompareEvent();
+        event.begin();
+        
+        long n = Math.min(maxDeals, dealsLeft);
+        for (long i = 0; i < n; i++)
+        {
+            this.playDeal();
+        }
+        dealsLeft -= n;
+        
+        if (event.shouldCommit())
+        {
+            event.handSize = numCards - (players.length - 1) * game.getNumHoleCards();
+            event.players = players.length;
+            event.showdowns = deals;
+            for (long w : wins)
+            {
+                event.winners += w;
+            }
+            for (Type t : Type.values())
+            {
+                if (types[t.ordinal()] > 0) event.category = t.name();
+            }
+            event.commit();
+        }
+        
+        stats.add(deals, splitPots, wins, types);
+        deals = 0;
+        splitPots = 0;
+        Arrays.fill(wins, 0);
+        Arrays.fill(types, 0);
+        return dealsLeft > 0;
+    }
+    
+    /**
+     * Returns the number of hands the table has scored of each type, which
+     * is only counted while metrics are on.
+     */
+    long[] getHandTypes()
+    {
+        return handTypes;
+    }
+    
+    private void playDeal()
+    {
+        deck.shuffle(numCards);
+        for (int p = 0; p < players.length; p++)
+        {
+            long hole = 0;
+            for (int c = 0; c < game.getNumHoleCards(); c++)
+            {
+                hole |= 1L << deck.drawCard().getIndex();
+            }
+            players[p] = hole;
+        }
+        long board = 0;
+        for (int c = 0; c < 5; c++)
+        {
+            board |= 1L << deck.drawCard().getIndex();
+        }
+        
+        scorer.score(players, board, scores);
+        if (EvaluationMetrics.ENABLED)
+        {
+            for (int score : scores)
+            {
+                handTypes[HandScore.getType(score).ordinal()]++;
+            }
+        }
+        
+        int numWinners = Showdown.findWinners(scores, scores.length, winners);
+        int best = scores[winners[0]];
+        for (int w = 0; w < numWinners; w++)
+        {
+            wins[winners[w]]++;
+        }
+        if (numWinners > 1) splitPots++;
+        types[HandScore.getType(best).ordinal()]++;
+        deals++;
+    }
+}
@@ -0,0 +1,246 @@
+package pokerhands.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import pokerhands.Game;
+import pokerhands.Pokerhands.Type;
+import pokerhands.metrics.EvaluateEvent;
+import pokerhands.metrics.EvaluationMetrics;
+
+/**
+ * Plays many independent tables at once, each dealing and scoring a number
+ * of hands, and counts the outcomes.
+ *
+ * Every table is a small task of its own. Rather than tie up a thread for
+ * all of its deals, a table plays a slice of them and then hands itself
+ * back to the executor, so thousands of tables make progress side by side
+ * on a pool with one thread per core. A pool of virtual threads can be
+ * passed in on a JDK that has them, but the default fork/join pool already
+ * keeps every core busy without one thread per table.
+ *
+ * Run this class to simulate a lobby:
+ * <pre>
+ *     java pokerhands.sim.TableSimulation [tables] [players] [deals] [game]
+ * </pre>
+ * @author jfritz
+ */
+public class TableSimulation
+{
+    //the number of deals a table plays before it lets other tables run
+    private static final int DEALS_PER_SLICE = 64;
+    
+    private final Game game;
+    private final int numTables;
+    private final int playersPerTable;
+    private final long dealsPerTable;
+    private final Executor executor;
+    
+    //the counts of the current run, or of the last one once it is done
+    private volatile SimulationStats stats;
+    
+    /**
+     * Creates a simulation that runs on the common fork/join pool.
+     * @param game the game the tables play
+     * @param numTables the number of tables
+     * @param playersPerTable the number of players at each table
+     * @param dealsPerTable the number of deals each table plays
+     */
+    public TableSimulation(Game game, int numTables, int playersPerTable, long dealsPerTable)
+    {
+        this(game, numTables, playersPerTable, dealsPerTable, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates a simulation that runs on the specified executor.
+     * @param game the game the tables play
+     * @param numTables the number of tables
+     * @param playersPerTable the number of players at each table
+     * @param dealsPerTable the number of deals each table plays
+     * @param executor the executor to run the tables on
+     */
+    public TableSimulation(Game game, int numTables, int playersPerTable, long dealsPerTable, Executor executor)
+    {
+        if (numTables < 1 || dealsPerTable < 0)
+        {
+            throw new IllegalArgumentException("A simulation needs at least one table and cannot play a negative number of deals");
+        }
+        if (playersPerTable < 2 || playersPerTable * game.getNumHoleCards() + 5 > 52)
+        {
+            throw new IllegalArgumentException("A table of " + game + " cannot seat " + playersPerTable + " players");
+        }
+        
+        this.game = game;
+        this.numTables = numTables;
+        this.playersPerTable = playersPerTable;
+        this.dealsPerTable = dealsPerTable;
+        this.executor = executor;
+        this.stats = new SimulationStats(playersPerTable);
+    }
+    
+    /**
+     * Returns the counts of the run in progress, or of the last run once it
+     * has finished. They can be read while the simulation is running. Each
+     * run starts its own counts from zero, so a second run does not add to
+     * those of the first.
+     * @return the counts of the current or last run
+     */
+    public SimulationStats getStats()
+    {
+        return stats;
+    }
+    
+    /**
+     * Plays every table and waits for them all to finish.
+     * @return the counts of every deal played in this run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public SimulationStats run() throws InterruptedException
+    {
+        return this.run(new SplittableRandom());
+    }
+    
+    /**
+     * Plays every table and waits for them all to finish. The same seed
+     * always deals the same hands at each table.
+     * @param seed the seed for the random number generators
+     * @return the counts of every deal played in this run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public SimulationStats run(long seed) throws InterruptedException
+    {
+        return this.run(new SplittableRandom(seed));
+    }
+    
+    private SimulationStats run(SplittableRandom random) throws InterruptedException
+    {
+        //the work runs on pool threads, so only its time is measured here,
+        //not what it allocates
+        long start = EvaluationMetrics.ENABLED ? System.nanoTime() : 0;
+        EvaluateEvent event = new EvaluateEvent();
+        event.begin();
+        
+        SimulationStats runStats = new SimulationStats(playersPerTable);
+        stats = runStats;
+        
+        CountDownLatch done = new CountDownLatch(numTables);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Table[] tables = new Table[numTables];
+        for (int t = 0; t < numTables; t++)
+        {
+            tables[t] = new Table(game, playersPerTable, dealsPerTable, random.split());
+            executor.execute(new TableTask(tables[t], runStats, done, failure));
+        }
+        done.await();
+        
+        //the tables score their hands without recording anything, so the
+        //run is timed here as one calculation, its deals, hands and players
+        //are counted in the other phases, and it is one flight recorder event
+        if (EvaluationMetrics.ENABLED)
+        {
+            long numHands = runStats.getDeals() * playersPerTable;
+            EvaluationMetrics.CALCULATE.record(start, -1, numHands);
+            EvaluationMetrics.DEAL.count(runStats.getDeals());
+            EvaluationMetrics.EVALUATE.count(numHands);
+            EvaluationMetrics.COMPARE.count(numHands);
+            for (Table table : tables)
+            {
+                EvaluationMetrics.addTypeCounts(table.getHandTypes());
+            }
+        }
+        if (event.shouldCommit())
+        {
+            //the best hand of every deal is the one that won it
+            Type best = null;
+            for (Type type : Type.values())
+            {
+                if (runStats.getWins(type) != 0) best = type;
+            }
+            event.handSize = game.getNumHoleCards() + 5;
+            event.players = playersPerTable;
+            event.setHands(runStats.getDeals() * playersPerTable, best);
+            event.commit();
+        }
+        
+        Throwable t = failure.get();
+        if (t != null)
+        {
+            throw new IllegalStateException("A table failed", t);
+        }
+        return runStats;
+    }
+    
+    /**
+     * Plays one slice of a table's deals, then queues the table again if it
+     * has any left.
+     */
+    private class TableTask implements Runnable
+    {
+        private final Table table;
+        private final SimulationStats stats;
+        private final CountDownLatch done;
+        private final AtomicReference<Throwable> failure;
+        
+        TableTask(Table table, SimulationStats stats, CountDownLatch done, AtomicReference<Throwable> failure)
+        {
+            this.table = table;
+            this.stats = stats;
+            this.done = done;
+            this.failure = failure;
+        }
+        
+        @Override
+        public void run()
+        {
+            boolean more;
+            try
+            {
+                more = failure.get() == null && table.play(DEALS_PER_SLICE, stats);
+            }
+            catch (RuntimeException | Error e)
+            {
+                failure.compareAndSet(null, e);
+                more = false;
+            }
+            
+            if (more)
+            {
+                try
+                {
+                    executor.execute(this);
+                    return;
+                }
+                catch (RejectedExecutionException e)
+                {
+                    failure.compareAndSet(null, e);
+                }
+            }
+            done.countDown();
+        }
+    }
+    
+    /**
+     * Simulates a lobby and prints the counts and the rate of deals.
+     * @param args the number of tables, players per table, deals per table
+     * and the game, each optional
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int tables = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        long deals = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        Game game = args.length > 3 ? Game.valueOf(args[3]) : Game.HoldEm;
+        
+        TableSimulation sim = new TableSimulation(game, tables, players, deals);
+        long start = System.nanoTime();
+        SimulationStats result = sim.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        System.out.println(result);
+        System.out.printf("%d tables in %.2f s, %.0f deals per second%n", tables, seconds, result.getDeals() / seconds);
+    }
+}